@@ -0,0 +1,228 @@
+package com.fatihbozik.aviationroutefinder.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Cache that answers from a bounded in-process map before asking the shared remote cache.
+ * <p>
+ * Writes go to both tiers. Puts, evictions and clears are announced through {@code invalidations} with the changed
+ * key, or {@code null} for a clear, so other instances can drop their local copies. Local entries are keyed by
+ * {@link String#valueOf(Object)}, as Redis keys are.
+ */
+public class TieredCache implements Cache {
+    private final Cache remote;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Consumer<String> invalidations;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    TieredCache(Cache remote, com.github.benmanes.caffeine.cache.Cache<String, Object> local, Consumer<String> invalidations) {
+        this.remote = remote;
+        this.local = local;
+        this.invalidations = invalidations;
+    }
+
+    @Override
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    /**
+     * @return the shared tier, e.g. for bulk reads of the keys {@link #getAll} could not answer locally
+     */
+    public Cache remote() {
+        return remote;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        final String localKey = String.valueOf(key);
+        final Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return new SimpleValueWrapper(value);
+        }
+        localMisses.increment();
+
+        final ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            remoteMisses.increment();
+            return wrapper;
+        }
+        remoteHits.increment();
+        local.put(localKey, wrapper.get());
+        return wrapper;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        final ValueWrapper wrapper = get(key);
+        final Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return type == null ? null : type.cast(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        final String localKey = String.valueOf(key);
+        final Object cached = local.getIfPresent(localKey);
+        if (cached != null) {
+            localHits.increment();
+            return (T) cached;
+        }
+        localMisses.increment();
+
+        final boolean[] loaded = {false};
+        final T value = remote.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        (loaded[0] ? remoteMisses : remoteHits).increment();
+        if (value != null) {
+            local.put(localKey, value);
+        }
+        return value;
+    }
+
+    /**
+     * Answers what it can from the local tier and asks {@code remoteLookup} for the rest, keeping its answers locally.
+     *
+     * @return the value of every key that has an entry; keys without one are left out
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Map<String, V> getAll(Collection<String> keys, Function<List<String>, Map<String, V>> remoteLookup) {
+        final Map<String, V> result = new HashMap<>();
+        final List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            final Object value = local.getIfPresent(key);
+            if (value != null) {
+                result.put(key, (V) value);
+            } else {
+                missing.add(key);
+            }
+        }
+        localHits.add(result.size());
+        localMisses.add(missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        final Map<String, V> found = remoteLookup.apply(missing);
+        remoteHits.add(found.size());
+        remoteMisses.add(missing.size() - found.size());
+        local.putAll(found);
+        result.putAll(found);
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        putLocally(String.valueOf(key), value);
+        invalidations.accept(String.valueOf(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        final ValueWrapper existing = remote.putIfAbsent(key, value);
+        putLocally(String.valueOf(key), existing == null ? value : existing.get());
+        return existing;
+    }
+
+    private void putLocally(String key, Object value) {
+        if (value == null) {
+            local.invalidate(key);
+        } else {
+            local.put(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        evictLocally(String.valueOf(key));
+        invalidations.accept(String.valueOf(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        final boolean evicted = remote.evictIfPresent(key);
+        evictLocally(String.valueOf(key));
+        invalidations.accept(String.valueOf(key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocally();
+        invalidations.accept(null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        final boolean invalidated = remote.invalidate();
+        clearLocally();
+        invalidations.accept(null);
+        return invalidated;
+    }
+
+    void evictLocally(String key) {
+        local.invalidate(key);
+    }
+
+    void clearLocally() {
+        local.invalidateAll();
+    }
+
+    public Statistics statistics() {
+        return new Statistics(localHits.sum(), localMisses.sum(), remoteHits.sum(), remoteMisses.sum(),
+                local.estimatedSize());
+    }
+
+    /**
+     * @param localSize approximate number of entries held locally
+     */
+    public record Statistics(long localHits, long localMisses, long remoteHits, long remoteMisses, long localSize) {
+
+        /**
+         * @return the share of lookups answered locally, or 0 before the first lookup
+         */
+        public double localHitRatio() {
+            return ratio(localHits, localMisses);
+        }
+
+        /**
+         * @return the share of local misses answered by the remote tier, or 0 before the first one
+         */
+        public double remoteHitRatio() {
+            return ratio(remoteHits, remoteMisses);
+        }
+
+        private static double ratio(long hits, long misses) {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.fatihbozik.aviationroutefinder.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Puts a bounded, short-lived in-process tier in front of every cache of {@code remote}.
+ * <p>
+ * Instances announce their changes on {@link #INVALIDATION_CHANNEL} and drop the local copies of keys changed
+ * elsewhere in {@link #onInvalidation(String)}. Redis pub/sub does not redeliver lost messages, so the time to live
+ * bounds how long a missed announcement can keep a stale local copy alive.
+ */
+@Slf4j
+public class TieredCacheManager implements CacheManager {
+    public static final String INVALIDATION_CHANNEL = "aviation:cache-invalidation";
+
+    private final CacheManager remote;
+    private final StringRedisTemplate redisTemplate;
+    private final long maxEntries;
+    private final Duration timeToLive;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TieredCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxEntries local entries kept per cache
+     */
+    public TieredCacheManager(CacheManager remote, StringRedisTemplate redisTemplate, long maxEntries, Duration timeToLive) {
+        this.remote = remote;
+        this.redisTemplate = redisTemplate;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, key -> {
+            final Cache remoteCache = remote.getCache(name);
+            if (remoteCache == null) {
+                return null;
+            }
+            return new TieredCache(remoteCache,
+                    Caffeine.newBuilder().maximumSize(maxEntries).expireAfterWrite(timeToLive).build(),
+                    changedKey -> publish(new Invalidation(instanceId, name, changedKey)));
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    /**
+     * @return the statistics of every cache used so far, by name
+     */
+    public Map<String, TieredCache.Statistics> statistics() {
+        final Map<String, TieredCache.Statistics> statistics = new TreeMap<>();
+        caches.forEach((name, cache) -> statistics.put(name, cache.statistics()));
+        return statistics;
+    }
+
+    /**
+     * Drops local copies changed by another instance.
+     */
+    public void onInvalidation(String message) {
+        final Invalidation invalidation = Invalidation.parse(message);
+        if (invalidation == null || invalidation.instanceId().equals(instanceId)) {
+            return;
+        }
+        final TieredCache cache = caches.get(invalidation.cacheName());
+        if (cache == null) {
+            return;
+        }
+        if (invalidation.key() == null) {
+            cache.clearLocally();
+        } else {
+            cache.evictLocally(invalidation.key());
+        }
+    }
+
+    private void publish(Invalidation invalidation) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, invalidation.toMessage());
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not announce the invalidation of {} in cache {}", invalidation.key(), invalidation.cacheName(), ex);
+        }
+    }
+
+    /**
+     * Announced change of one key, or of the whole cache if {@code key} is {@code null}. Messages are the instance id,
+     * the cache name and the key, separated by line feeds.
+     */
+    record Invalidation(String instanceId, String cacheName, String key) {
+
+        String toMessage() {
+            return instanceId + '\n' + cacheName + (key == null ? "" : '\n' + key);
+        }
+
+        static Invalidation parse(String message) {
+            final String[] parts = message.split("\n", 3);
+            if (parts.length < 2) {
+                return null;
+            }
+            return new Invalidation(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * The classes in this package represent AviationRouteFinder's two-level cache.
+ */
+
+package com.fatihbozik.aviationroutefinder.cache;
@@ -0,0 +1,29 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import com.fatihbozik.aviationroutefinder.rest.controller.RouteController;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+
+/**
+ * Lets callers ask for CBOR instead of JSON with {@code Accept: application/cbor}. CBOR payloads encode the same
+ * models as the JSON ones, generated from openapi.yaml, with the same Jackson settings. Compact route responses come as
+ * {@code application/vnd.aviation.compact+cbor}.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        final MappingJackson2CborHttpMessageConverter converter =
+                new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+        converter.setSupportedMediaTypes(List.of(MediaType.APPLICATION_CBOR,
+                MediaType.parseMediaType(RouteController.COMPACT_CBOR_VALUE)));
+        return converter;
+    }
+}
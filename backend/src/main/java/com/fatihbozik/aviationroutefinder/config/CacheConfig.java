@@ -1,37 +1,94 @@
 package com.fatihbozik.aviationroutefinder.config;
 
+import com.fatihbozik.aviationroutefinder.cache.TieredCacheManager;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
+    /**
+     * Prefix of the Redis keys of the {@link CompactCacheSerializer} format. Releases storing plain JSON used the bare
+     * cache name and cannot read these values; separate keys keep them from sharing entries during a rolling deploy.
+     */
+    static final String KEY_PREFIX = "compact:";
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    @Primary
+    public TieredCacheManager cacheManager(RedisCacheManager redisCacheManager,
+                                           StringRedisTemplate redisTemplate,
+                                           @Value("${aviation.cache.near.max-entries:10000}") long maxEntries,
+                                           @Value("${aviation.cache.near.time-to-live:1m}") Duration timeToLive) {
+        return new TieredCacheManager(redisCacheManager, redisTemplate, maxEntries, timeToLive);
+    }
+
+    /**
+     * The only Redis subscriber connection of the application; other channels add their listeners to it, see
+     * {@link ScheduleSyncConfig}.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TieredCacheManager cacheManager) {
+        final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(TieredCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisCacheManager redisCacheManager(
+            RedisConnectionFactory connectionFactory,
+            @Value("${aviation.cache.compress-above-bytes.locations:4096}") int locationsThreshold,
+            @Value("${aviation.cache.compress-above-bytes.transportations:4096}") int transportationsThreshold,
+            @Value("${aviation.cache.compress-above-bytes.routes:1024}") int routesThreshold,
+            @Value("${aviation.cache.compress-above-bytes.reachability:1024}") int reachabilityThreshold,
+            @Value("${aviation.cache.routes.hard-time-to-live:30m}") Duration routesTimeToLive) {
+        final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+        jsonSerializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+
         final RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(1))
+                .prefixCacheNameWith(KEY_PREFIX)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new CompactCacheSerializer(jsonSerializer, -1)))
                 .disableCachingNullValues();
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
                 .withCacheConfiguration("locations",
-                        cacheConfig.entryTtl(Duration.ofDays(1)))
+                        compressed(cacheConfig, jsonSerializer, locationsThreshold).entryTtl(Duration.ofDays(1)))
                 .withCacheConfiguration("transportations",
-                        cacheConfig.entryTtl(Duration.ofHours(6)))
+                        compressed(cacheConfig, jsonSerializer, transportationsThreshold).entryTtl(Duration.ofHours(6)))
                 .withCacheConfiguration("routes",
-                        cacheConfig.entryTtl(Duration.ofMinutes(30)))
+                        compressed(cacheConfig, jsonSerializer, routesThreshold).entryTtl(routesTimeToLive))
+                .withCacheConfiguration("reachability",
+                        compressed(cacheConfig, jsonSerializer, reachabilityThreshold).entryTtl(Duration.ofMinutes(30)))
                 .build();
     }
-}
\ No newline at end of file
+
+    private static RedisCacheConfiguration compressed(RedisCacheConfiguration cacheConfig,
+                                                      GenericJackson2JsonRedisSerializer jsonSerializer,
+                                                      int compressAboveBytes) {
+        return cacheConfig.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                new CompactCacheSerializer(jsonSerializer, compressAboveBytes)));
+    }
+}
@@ -0,0 +1,352 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import com.fatihbozik.aviationroutefinder.domain.CachedRoutes;
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.ReachableDestination;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the cached domain values: lists of routes, cached route search answers, reachable destinations,
+ * transportations and locations.
+ * <p>
+ * Values carry a one-byte tag instead of a class name, and every distinct location and transportation is written
+ * once per value: later occurrences refer back to it by index, so routes sharing a flight or an airport stay small.
+ * Nullable fields are announced in a presence bit mask.
+ */
+final class CacheValueCodec {
+    private static final int NULL = 0;
+    private static final int LIST = 1;
+    private static final int ROUTE = 2;
+    private static final int REACHABLE_DESTINATION = 3;
+    private static final int TRANSPORTATION = 4;
+    private static final int TRANSPORTATION_REF = 5;
+    private static final int LOCATION = 6;
+    private static final int LOCATION_REF = 7;
+    private static final int CACHED_ROUTES = 8;
+
+    private static final TransportationType[] TYPES = TransportationType.values();
+
+    private CacheValueCodec() {
+    }
+
+    /**
+     * @return whether {@link #encode(Object)} can write {@code value}
+     */
+    static boolean supports(Object value) {
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (!supports(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (value instanceof CachedRoutes cached) {
+            return supports(cached.routes());
+        }
+        return value == null || value instanceof Route || value instanceof ReachableDestination
+               || value instanceof Transportation || value instanceof Location;
+    }
+
+    static byte[] encode(Object value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            new Writer(new DataOutputStream(bytes)).write(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object decode(DataInputStream in) throws IOException {
+        return new Reader(in).read();
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<Location, Integer> locations = new HashMap<>();
+        private final Map<Transportation, Integer> transportations = new HashMap<>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void write(Object value) throws IOException {
+            switch (value) {
+                case null -> out.writeByte(NULL);
+                case List<?> list -> {
+                    out.writeByte(LIST);
+                    writeSize(list.size());
+                    for (Object item : list) {
+                        write(item);
+                    }
+                }
+                case Route route -> {
+                    out.writeByte(ROUTE);
+                    writeSize(route.steps().size());
+                    for (Transportation step : route.steps()) {
+                        writeTransportation(step);
+                    }
+                }
+                case CachedRoutes cached -> {
+                    out.writeByte(CACHED_ROUTES);
+                    out.writeLong(cached.computedAt().toEpochMilli());
+                    write(cached.routes());
+                }
+                case ReachableDestination reachable -> {
+                    out.writeByte(REACHABLE_DESTINATION);
+                    writeLocation(reachable.destination());
+                    write(reachable.routes());
+                }
+                case Transportation transportation -> writeTransportation(transportation);
+                case Location location -> writeLocation(location);
+                default -> throw new IllegalArgumentException("Cannot encode " + value.getClass().getName());
+            }
+        }
+
+        private void writeTransportation(Transportation transportation) throws IOException {
+            if (transportation == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            final Integer index = transportations.get(transportation);
+            if (index != null) {
+                out.writeByte(TRANSPORTATION_REF);
+                writeSize(index);
+                return;
+            }
+            transportations.put(transportation, transportations.size());
+
+            out.writeByte(TRANSPORTATION);
+            out.writeByte(presence(transportation.id(), transportation.type(), transportation.operatingDays(),
+                    transportation.departureTime(), transportation.arrivalTime(), transportation.durationMinutes()));
+            if (transportation.id() != null) {
+                out.writeLong(transportation.id());
+            }
+            writeLocation(transportation.origin());
+            writeLocation(transportation.destination());
+            if (transportation.type() != null) {
+                out.writeByte(transportation.type().ordinal());
+            }
+            if (transportation.operatingDays() != null) {
+                writeSize(transportation.operatingDays().size());
+                for (Integer day : transportation.operatingDays()) {
+                    out.writeInt(day);
+                }
+            }
+            if (transportation.departureTime() != null) {
+                out.writeLong(transportation.departureTime().toNanoOfDay());
+            }
+            if (transportation.arrivalTime() != null) {
+                out.writeLong(transportation.arrivalTime().toNanoOfDay());
+            }
+            if (transportation.durationMinutes() != null) {
+                out.writeInt(transportation.durationMinutes());
+            }
+        }
+
+        private void writeLocation(Location location) throws IOException {
+            if (location == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            final Integer index = locations.get(location);
+            if (index != null) {
+                out.writeByte(LOCATION_REF);
+                writeSize(index);
+                return;
+            }
+            locations.put(location, locations.size());
+
+            out.writeByte(LOCATION);
+            out.writeByte(presence(location.id(), location.name(), location.country(), location.city(), location.code(),
+                    location.latitude(), location.longitude()));
+            if (location.id() != null) {
+                out.writeLong(location.id());
+            }
+            writeString(location.name());
+            writeString(location.country());
+            writeString(location.city());
+            writeString(location.code());
+            if (location.latitude() != null) {
+                out.writeDouble(location.latitude());
+            }
+            if (location.longitude() != null) {
+                out.writeDouble(location.longitude());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value != null) {
+                final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                writeSize(utf8.length);
+                out.write(utf8);
+            }
+        }
+
+        /**
+         * Writes {@code size} as an unsigned variable-length integer, seven bits per byte.
+         */
+        private void writeSize(int size) throws IOException {
+            int remaining = size;
+            while ((remaining & ~0x7F) != 0) {
+                out.writeByte((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            out.writeByte(remaining);
+        }
+
+        private static int presence(Object... fields) {
+            int mask = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] != null) {
+                    mask |= 1 << i;
+                }
+            }
+            return mask;
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final List<Location> locations = new ArrayList<>();
+        private final List<Transportation> transportations = new ArrayList<>();
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        private Object read() throws IOException {
+            final int tag = in.readUnsignedByte();
+            return switch (tag) {
+                case NULL -> null;
+                case LIST -> {
+                    final int size = readSize();
+                    final List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(read());
+                    }
+                    yield list;
+                }
+                case ROUTE -> {
+                    final int size = readSize();
+                    final List<Transportation> steps = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        steps.add(readTransportation(in.readUnsignedByte()));
+                    }
+                    yield new Route(steps);
+                }
+                case REACHABLE_DESTINATION -> {
+                    final Location destination = readLocation(in.readUnsignedByte());
+                    yield new ReachableDestination(destination, routes(read()));
+                }
+                case CACHED_ROUTES -> {
+                    final Instant computedAt = Instant.ofEpochMilli(in.readLong());
+                    yield new CachedRoutes(routes(read()), computedAt);
+                }
+                case TRANSPORTATION, TRANSPORTATION_REF -> readTransportation(tag);
+                case LOCATION, LOCATION_REF -> readLocation(tag);
+                default -> throw new IOException("Unknown value tag " + tag);
+            };
+        }
+
+        private Transportation readTransportation(int tag) throws IOException {
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag == TRANSPORTATION_REF) {
+                return transportations.get(readSize());
+            }
+            if (tag != TRANSPORTATION) {
+                throw new IOException("Expected a transportation, found tag " + tag);
+            }
+
+            final int presence = in.readUnsignedByte();
+            final Long id = isPresent(presence, 0) ? in.readLong() : null;
+            final Location origin = readLocation(in.readUnsignedByte());
+            final Location destination = readLocation(in.readUnsignedByte());
+            final TransportationType type = isPresent(presence, 1) ? TYPES[in.readUnsignedByte()] : null;
+            List<Integer> operatingDays = null;
+            if (isPresent(presence, 2)) {
+                final int size = readSize();
+                operatingDays = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    operatingDays.add(in.readInt());
+                }
+            }
+            final LocalTime departureTime = isPresent(presence, 3) ? LocalTime.ofNanoOfDay(in.readLong()) : null;
+            final LocalTime arrivalTime = isPresent(presence, 4) ? LocalTime.ofNanoOfDay(in.readLong()) : null;
+            final Integer durationMinutes = isPresent(presence, 5) ? in.readInt() : null;
+
+            final Transportation transportation = new Transportation(id, origin, destination, type, operatingDays,
+                    departureTime, arrivalTime, durationMinutes);
+            transportations.add(transportation);
+            return transportation;
+        }
+
+        private Location readLocation(int tag) throws IOException {
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag == LOCATION_REF) {
+                return locations.get(readSize());
+            }
+            if (tag != LOCATION) {
+                throw new IOException("Expected a location, found tag " + tag);
+            }
+
+            final int presence = in.readUnsignedByte();
+            final Location location = new Location(
+                    isPresent(presence, 0) ? in.readLong() : null,
+                    isPresent(presence, 1) ? readString() : null,
+                    isPresent(presence, 2) ? readString() : null,
+                    isPresent(presence, 3) ? readString() : null,
+                    isPresent(presence, 4) ? readString() : null,
+                    isPresent(presence, 5) ? in.readDouble() : null,
+                    isPresent(presence, 6) ? in.readDouble() : null);
+            locations.add(location);
+            return location;
+        }
+
+        private String readString() throws IOException {
+            final byte[] utf8 = new byte[readSize()];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        private int readSize() throws IOException {
+            int size = 0;
+            for (int shift = 0; ; shift += 7) {
+                final int b = in.readUnsignedByte();
+                size |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return size;
+                }
+            }
+        }
+
+        private static boolean isPresent(int presence, int field) {
+            return (presence & (1 << field)) != 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static List<Route> routes(Object value) {
+            return (List<Route>) value;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Redis value serializer that writes domain values with {@link CacheValueCodec} and anything else with a JSON
+ * fallback, compressing payloads above a size threshold.
+ * <p>
+ * Every value starts with a three-byte header: a marker that JSON never starts with, the format version and the
+ * encoding. Values without the marker are read as JSON, and values of an unknown version are treated as cache misses,
+ * so releases writing later versions can share the keys with this one. Releases storing plain JSON cannot read any of
+ * these values and use other keys, see {@link CacheConfig#KEY_PREFIX}. Version 2 added cached route search answers;
+ * version 1 values are still read.
+ */
+class CompactCacheSerializer implements RedisSerializer<Object> {
+    private static final byte MARKER = (byte) 0xC5;
+    private static final byte VERSION = 2;
+    private static final byte OLDEST_READABLE_VERSION = 1;
+
+    private static final byte BINARY = 0;
+    private static final byte JSON = 1;
+    private static final byte COMPRESSED = 0x10;
+
+    private static final int HEADER_LENGTH = 3;
+
+    private final RedisSerializer<Object> json;
+    private final int compressAboveBytes;
+
+    /**
+     * @param compressAboveBytes payloads longer than this are deflated; negative to never compress
+     */
+    CompactCacheSerializer(RedisSerializer<Object> json, int compressAboveBytes) {
+        this.json = json;
+        this.compressAboveBytes = compressAboveBytes;
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte encoding = CacheValueCodec.supports(value) ? BINARY : JSON;
+        byte[] payload = encoding == BINARY ? CacheValueCodec.encode(value) : json.serialize(value);
+        if (compressAboveBytes >= 0 && payload.length > compressAboveBytes) {
+            final byte[] compressed = deflate(payload);
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                encoding |= COMPRESSED;
+            }
+        }
+
+        final byte[] bytes = new byte[HEADER_LENGTH + payload.length];
+        bytes[0] = MARKER;
+        bytes[1] = VERSION;
+        bytes[2] = encoding;
+        System.arraycopy(payload, 0, bytes, HEADER_LENGTH, payload.length);
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MARKER) {
+            return json.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[1] < OLDEST_READABLE_VERSION || bytes[1] > VERSION) {
+            return null;
+        }
+
+        final byte encoding = bytes[2];
+        try (InputStream payload = payload(bytes, (encoding & COMPRESSED) != 0)) {
+            return switch (encoding & ~COMPRESSED) {
+                case BINARY -> CacheValueCodec.decode(new DataInputStream(payload));
+                case JSON -> json.deserialize(payload.readAllBytes());
+                default -> null;
+            };
+        } catch (IOException | RuntimeException ex) {
+            throw new SerializationException("Could not read cached value", ex);
+        }
+    }
+
+    private static InputStream payload(byte[] bytes, boolean compressed) {
+        final InputStream payload = new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        return compressed ? new InflaterInputStream(payload) : payload;
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length / 2);
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(payload);
+        } catch (IOException ex) {
+            throw new SerializationException("Could not compress cached value", ex);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,15 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import com.fatihbozik.aviationroutefinder.graph.RouteRules;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RouteRulesConfig {
+
+    @Bean
+    public RouteRules routeRules(@Value("${aviation.routes.rules:GROUND? FLIGHT GROUND?}") String rules) {
+        return RouteRules.parse(rules);
+    }
+}
@@ -0,0 +1,29 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RouteSearchConfig {
+
+    /**
+     * Runs the searches of batch requests. Searches may block while an identical search runs elsewhere, so they get
+     * their own threads instead of the common fork-join pool. Once the queue is full, callers run searches themselves.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService routeSearchExecutor(@Value("${aviation.routes.batch.threads:4}") int threads,
+                                               @Value("${aviation.routes.batch.queue-capacity:256}") int queueCapacity) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("route-search-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
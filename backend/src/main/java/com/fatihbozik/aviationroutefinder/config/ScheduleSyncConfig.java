@@ -0,0 +1,23 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangeRelay;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subscribes to the schedule changes other instances announce, see {@link ScheduleChangeRelay}. The subscription shares
+ * the listener container of the cache invalidations, so both channels use one Redis connection.
+ */
+@Configuration
+public class ScheduleSyncConfig {
+
+    public ScheduleSyncConfig(RedisMessageListenerContainer redisMessageListenerContainer,
+                              ScheduleChangeRelay scheduleChangeRelay) {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> scheduleChangeRelay.onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(ScheduleChangeRelay.CHANNEL));
+    }
+}
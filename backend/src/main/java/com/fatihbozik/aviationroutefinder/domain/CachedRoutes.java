@@ -0,0 +1,14 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Cached answer of a route search, with the time it was computed at.
+ */
+public record CachedRoutes(
+        List<Route> routes,
+        Instant computedAt
+) implements Serializable {
+}
@@ -7,6 +7,12 @@ public record Location(
         String name,
         String country,
         String city,
-        String code
+        String code,
+        Double latitude,
+        Double longitude
 ) implements Serializable {
+
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
 }
\ No newline at end of file
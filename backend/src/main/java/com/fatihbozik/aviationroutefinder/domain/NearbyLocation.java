@@ -0,0 +1,9 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+
+public record NearbyLocation(
+        Location location,
+        double distanceKm
+) implements Serializable {
+}
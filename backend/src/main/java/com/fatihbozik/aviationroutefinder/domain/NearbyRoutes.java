@@ -0,0 +1,14 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The routes to a destination from one of the origins closest to a point.
+ */
+public record NearbyRoutes(
+        Location origin,
+        double distanceKm,
+        List<Route> routes
+) implements Serializable {
+}
@@ -0,0 +1,10 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+public record ReachableDestination(
+        Location destination,
+        List<Route> routes
+) implements Serializable {
+}
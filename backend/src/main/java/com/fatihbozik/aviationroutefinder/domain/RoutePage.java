@@ -0,0 +1,15 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+/**
+ * Slice of the routes between two locations: the {@code limit} routes after the first {@code offset} in {@code sort}
+ * order. {@code preferredType} is only used by {@link RouteSort#PREFERRED_TYPE}.
+ */
+public record RoutePage(
+        RouteSort sort,
+        TransportationType preferredType,
+        int offset,
+        int limit
+) {
+}
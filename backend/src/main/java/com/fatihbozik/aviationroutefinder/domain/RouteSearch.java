@@ -0,0 +1,8 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+public record RouteSearch(
+        String originCode,
+        String destinationCode,
+        int day
+) {
+}
@@ -0,0 +1,19 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.util.List;
+
+/**
+ * Outcome of a single {@link RouteSearch}: either the routes found or the reason the search could not be run.
+ */
+public record RouteSearchResult(
+        List<Route> routes,
+        String error
+) {
+    public static RouteSearchResult found(List<Route> routes) {
+        return new RouteSearchResult(routes, null);
+    }
+
+    public static RouteSearchResult failed(String error) {
+        return new RouteSearchResult(List.of(), error);
+    }
+}
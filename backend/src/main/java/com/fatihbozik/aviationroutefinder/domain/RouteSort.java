@@ -0,0 +1,18 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+public enum RouteSort {
+    /**
+     * Depth-first discovery order over the schedule, as returned without sorting.
+     */
+    DISCOVERY,
+    FEWEST_LEGS,
+    /**
+     * Same order as {@link #FEWEST_LEGS}: a route changes vehicles between consecutive legs, so its transfers are
+     * always its legs minus one, whatever the route rules allow.
+     */
+    FEWEST_TRANSFERS,
+    /**
+     * Fewest legs of another type than the preferred one first.
+     */
+    PREFERRED_TYPE
+}
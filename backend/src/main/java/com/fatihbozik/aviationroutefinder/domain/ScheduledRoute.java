@@ -0,0 +1,19 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A route with the time each of its steps departs and arrives.
+ */
+public record ScheduledRoute(List<ScheduledStep> steps) implements Serializable {
+
+    public LocalDateTime departure() {
+        return steps.getFirst().departure();
+    }
+
+    public LocalDateTime arrival() {
+        return steps.getLast().arrival();
+    }
+}
@@ -0,0 +1,11 @@
+package com.fatihbozik.aviationroutefinder.domain;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+public record ScheduledStep(
+        Transportation transportation,
+        LocalDateTime departure,
+        LocalDateTime arrival
+) implements Serializable {
+}
@@ -3,6 +3,7 @@ package com.fatihbozik.aviationroutefinder.domain;
 import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
 
 import java.io.Serializable;
+import java.time.LocalTime;
 import java.util.List;
 
 public record Transportation(
@@ -10,6 +11,9 @@ public record Transportation(
         Location origin,
         Location destination,
         TransportationType type,
-        List<Integer> operatingDays
+        List<Integer> operatingDays,
+        LocalTime departureTime,
+        LocalTime arrivalTime,
+        Integer durationMinutes
 ) implements Serializable {
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Meet-in-the-middle search for rules that allow long routes, such as several flights connecting through hubs.
+ * <p>
+ * The second half of every route is enumerated first, backwards from the destination over
+ * {@link TransitGraph#arrivals(int)}, and indexed by the location it starts at. The first half is then walked forwards
+ * from the origin and joined with the indexed halves at each location it reaches. Each half is at most half the route
+ * long, so the work follows the square root of the paths a one-sided search would walk. Both halves step the
+ * {@link RouteRules} automaton, forwards from its start and backwards from its accepting states, and drop a branch as
+ * soon as it cannot be part of a valid route.
+ * <p>
+ * A route of {@code n} legs is split after its first {@code ⌈n/2⌉} legs, so every route is found exactly once. Routes
+ * are emitted in the order of {@link DepthFirstRouteEngine}.
+ * <p>
+ * Guards keep a single query against a hub bounded: routes longer than {@code max-legs} are never searched, and the
+ * search stops early once it has found {@code max-results} routes or walked {@code max-partial-routes} route halves.
+ * A search that stops early emits the routes found so far and logs a warning.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aviation.routes.engine", havingValue = "bidirectional")
+public class BidirectionalRouteEngine implements RouteEngine {
+    private final RouteRules rules;
+    private final int maxLegs;
+    private final int maxResults;
+    private final int maxPartialRoutes;
+
+    public BidirectionalRouteEngine(RouteRules rules,
+                                    @Value("${aviation.routes.bidirectional.max-legs:6}") int maxLegs,
+                                    @Value("${aviation.routes.bidirectional.max-results:10000}") int maxResults,
+                                    @Value("${aviation.routes.bidirectional.max-partial-routes:100000}") int maxPartialRoutes) {
+        if (rules.stateCount() > Long.SIZE) {
+            throw new IllegalArgumentException("Route rules are too complex for a bidirectional search: " + rules);
+        }
+        if (maxLegs < 1 || maxResults < 1 || maxPartialRoutes < 1) {
+            throw new IllegalArgumentException("Bidirectional search limits must be positive");
+        }
+        this.rules = rules;
+        this.maxLegs = Math.min(maxLegs, rules.maxLegs());
+        this.maxResults = maxResults;
+        this.maxPartialRoutes = maxPartialRoutes;
+    }
+
+    @Override
+    public void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes) {
+        if (origin == destination) {
+            return;
+        }
+        final Search search = new Search(graph, origin, destination, day);
+        search.expandBackward(destination, new int[maxLegs / 2], new int[maxLegs / 2], 0, rules.acceptingStates());
+        if (!search.stopped) {
+            search.expandForward(origin, 0, rules.start());
+        }
+        if (search.stopped) {
+            LOG.warn("Route search from {} to {} on day {} stopped early after {} routes and {} partial routes",
+                    graph.locationCode(origin), graph.locationCode(destination), day,
+                    search.found.size(), search.partialRoutes);
+        }
+
+        final List<RankedRoute> ranked = new ArrayList<>(search.found.size());
+        for (int[] route : search.found) {
+            ranked.add(new RankedRoute(route, discoveryRanks(graph, day, route)));
+        }
+        ranked.sort((left, right) -> compareRanks(left.ranks(), right.ranks()));
+        for (RankedRoute route : ranked) {
+            routes.accept(route.legs());
+        }
+    }
+
+    /**
+     * @return the position of each leg among the transportations leaving its origin, which orders routes the way a
+     * depth-first search discovers them
+     */
+    private static int[] discoveryRanks(TransitGraph graph, int day, int[] route) {
+        final TransitGraph.Adjacency outgoing = graph.outgoing(day);
+        final int[] ranks = new int[route.length];
+        for (int i = 0; i < route.length; i++) {
+            final int from = graph.origin(route[i]);
+            int k = 0;
+            while (outgoing.edge(from, k) != route[i]) {
+                k++;
+            }
+            ranks[i] = k;
+        }
+        return ranks;
+    }
+
+    private static int compareRanks(int[] left, int[] right) {
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            if (left[i] != right[i]) {
+                return Integer.compare(left[i], right[i]);
+            }
+        }
+        return Integer.compare(left.length, right.length);
+    }
+
+    private record RankedRoute(int[] legs, int[] ranks) {
+    }
+
+    /**
+     * Second half of a route, starting at the location it is indexed by.
+     *
+     * @param legs   the legs in travel order
+     * @param stops  the locations the legs arrive at, ending with the destination
+     * @param states bit mask of the automaton states from which {@code legs} lead to acceptance
+     */
+    private record Half(int[] legs, int[] stops, long states) {
+    }
+
+    private final class Search {
+        private final TransitGraph graph;
+        private final TransitGraph.Adjacency outgoing;
+        private final TransitGraph.Adjacency arrivals;
+        private final int origin;
+        private final int destination;
+
+        private final Map<Integer, List<Half>> halvesByStart = new HashMap<>();
+        private final boolean[] visited;
+        private final int[] path = new int[(maxLegs + 1) / 2];
+        private final List<int[]> found = new ArrayList<>();
+        private int partialRoutes;
+        private boolean stopped;
+
+        private Search(TransitGraph graph, int origin, int destination, int day) {
+            this.graph = graph;
+            this.outgoing = graph.outgoing(day);
+            this.arrivals = graph.arrivals(day);
+            this.origin = origin;
+            this.destination = destination;
+            this.visited = new boolean[graph.locationCount()];
+        }
+
+        /**
+         * Indexes every second half ending at the destination, walking {@code legs} and {@code stops} backwards.
+         */
+        private void expandBackward(int current, int[] legs, int[] stops, int depth, long states) {
+            final int[] halfLegs = new int[depth];
+            final int[] halfStops = new int[depth];
+            for (int i = 0; i < depth; i++) {
+                halfLegs[i] = legs[depth - 1 - i];
+                halfStops[i] = stops[depth - 1 - i];
+            }
+            halvesByStart.computeIfAbsent(current, start -> new ArrayList<>()).add(new Half(halfLegs, halfStops, states));
+            if (depth == legs.length) {
+                return;
+            }
+
+            visited[current] = true;
+            for (int k = 0; k < arrivals.size(current) && !stopped; k++) {
+                final int transportation = arrivals.edge(current, k);
+                final int from = graph.origin(transportation);
+                final long previous = rules.previous(states, graph.type(transportation));
+                if (from == origin || visited[from] || previous == 0) {
+                    continue;
+                }
+                if (++partialRoutes > maxPartialRoutes) {
+                    stopped = true;
+                    break;
+                }
+                legs[depth] = transportation;
+                stops[depth] = current;
+                expandBackward(from, legs, stops, depth + 1, previous);
+            }
+            visited[current] = false;
+        }
+
+        /**
+         * Walks the first halves from the origin and joins each with the second halves starting where it ends.
+         */
+        private void expandForward(int current, int depth, int state) {
+            if (depth > 0) {
+                join(current, depth, state);
+            }
+            if (current == destination || depth == path.length) {
+                return;
+            }
+
+            visited[current] = true;
+            for (int k = 0; k < outgoing.size(current) && !stopped; k++) {
+                final int transportation = outgoing.edge(current, k);
+                final int next = graph.destination(transportation);
+                final int nextState = rules.next(state, graph.type(transportation));
+                if (visited[next] || nextState == RouteRules.REJECT) {
+                    continue;
+                }
+                if (++partialRoutes > maxPartialRoutes) {
+                    stopped = true;
+                    break;
+                }
+                path[depth] = transportation;
+                expandForward(next, depth + 1, nextState);
+            }
+            visited[current] = false;
+        }
+
+        /**
+         * Emits the first half in {@link #path} followed by each matching second half that shares no location with
+         * it. A second half matches if it is as long as the first half or one leg shorter.
+         */
+        private void join(int current, int depth, int state) {
+            final List<Half> halves = halvesByStart.get(current);
+            if (halves == null) {
+                return;
+            }
+            for (Half half : halves) {
+                final int length = half.legs().length;
+                if ((length != depth && length != depth - 1) || (half.states() & (1L << state)) == 0
+                    || !isDisjoint(half)) {
+                    continue;
+                }
+                final int[] route = new int[depth + length];
+                System.arraycopy(path, 0, route, 0, depth);
+                System.arraycopy(half.legs(), 0, route, depth, length);
+                found.add(route);
+                if (found.size() == maxResults) {
+                    stopped = true;
+                    return;
+                }
+            }
+        }
+
+        private boolean isDisjoint(Half half) {
+            for (int stop : half.stops()) {
+                if (visited[stop]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Time-dependent route search with the Connection Scan Algorithm.
+ * <p>
+ * The timed transportations of each weekday are kept in a {@link Timetable} sorted by departure. An earliest-arrival
+ * search scans it once, from the first departure after the requested time, and stops as soon as the next departure is
+ * no earlier than the best arrival found so far. Transportations without a timetable can be taken at any time and are
+ * followed whenever a location is reached earlier than before.
+ * <p>
+ * Searches follow the {@link RouteRules} automaton and leave {@code min-transfer-minutes} between arriving at a
+ * location and leaving it again. Journeys stay within the day they start on: a leg may arrive after midnight, but no
+ * leg of the next day is taken. Locations are tracked per automaton state, so an earliest-arrival journey may in rare
+ * cases pass a location twice.
+ * <p>
+ * The per-search arrays are kept per thread and reused; after a search only the entries it reached are reset, so a
+ * search costs time in what it reaches rather than in the size of the graph.
+ */
+@Component
+public class ConnectionScanEngine {
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private final RouteRules rules;
+    private final int minTransferMinutes;
+
+    private final PerGraph<Timetable> timetable = new PerGraph<>(Timetable::build);
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<>();
+
+    public ConnectionScanEngine(RouteRules rules,
+                                @Value("${aviation.routes.timed.min-transfer-minutes:0}") int minTransferMinutes) {
+        if (minTransferMinutes < 0) {
+            throw new IllegalArgumentException("Minimum transfer time must not be negative");
+        }
+        this.rules = rules;
+        this.minTransferMinutes = minTransferMinutes;
+    }
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        timetable.get(event.graph());
+    }
+
+    /**
+     * @return the journey from {@code origin} to {@code destination} on {@code day} that leaves no earlier than
+     * {@code departAfter} and arrives first, or {@code null} if there is none
+     */
+    public Journey findEarliestArrival(TransitGraph graph, int origin, int destination, int day, int departAfter) {
+        if (origin == destination || !OperatingDays.isValid(day)) {
+            return null;
+        }
+        final Scratch buffers = scratch(graph);
+        try {
+            return new Scan(graph, timetable.get(graph).day(day), origin, destination, buffers).run(departAfter);
+        } finally {
+            buffers.clear();
+        }
+    }
+
+    /**
+     * Times the legs of a route operating on the searched day, taking each leg as early as possible after
+     * {@code departAfter}.
+     *
+     * @return the timed route, or {@code null} if one of its legs leaves before it can be reached
+     */
+    public Journey schedule(TransitGraph graph, int[] legs, int departAfter) {
+        final int[] departures = new int[legs.length];
+        final int[] arrivals = new int[legs.length];
+        int ready = departAfter;
+        for (int i = 0; i < legs.length; i++) {
+            if (graph.isTimed(legs[i])) {
+                departures[i] = graph.departure(legs[i]);
+                if (departures[i] < ready) {
+                    return null;
+                }
+                arrivals[i] = Timetable.arrival(graph, legs[i]);
+            } else {
+                departures[i] = ready;
+                arrivals[i] = ready + graph.duration(legs[i]);
+            }
+            ready = arrivals[i] + minTransferMinutes;
+        }
+        return new Journey(legs, departures, arrivals);
+    }
+
+    /**
+     * @return the cleared arrays of the calling thread, reallocated if {@code graph} has outgrown them
+     */
+    private Scratch scratch(TransitGraph graph) {
+        final Scratch current = scratch.get();
+        if (current != null && current.fits(graph.locationCount())) {
+            return current;
+        }
+        final Scratch allocated = new Scratch(graph.locationCount(), rules.stateCount());
+        scratch.set(allocated);
+        return allocated;
+    }
+
+    /**
+     * State of one earliest-arrival search. Arrays are indexed by location and automaton state.
+     */
+    private final class Scan {
+        private final TransitGraph graph;
+        private final Timetable.Day day;
+        private final int origin;
+        private final int destination;
+        private final int states;
+        private final Scratch scratch;
+
+        private final boolean[] reached;
+        private final int[] arrival;
+        private final int[] previous;
+        private final int[] leg;
+        private final int[] legDeparture;
+        private int best = UNREACHED;
+        private int bestIndex = NONE;
+
+        private Scan(TransitGraph graph, Timetable.Day day, int origin, int destination, Scratch scratch) {
+            this.graph = graph;
+            this.day = day;
+            this.origin = origin;
+            this.destination = destination;
+            this.states = rules.stateCount();
+            this.scratch = scratch;
+
+            this.reached = scratch.reached;
+            this.arrival = scratch.arrival;
+            this.previous = scratch.previous;
+            this.leg = scratch.leg;
+            this.legDeparture = scratch.legDeparture;
+        }
+
+        private Journey run(int departAfter) {
+            final int start = origin * states + rules.start();
+            scratch.touch(start);
+            reached[origin] = true;
+            arrival[start] = departAfter;
+            previous[start] = NONE;
+            followUntimed(origin, rules.start(), departAfter, start);
+
+            for (int i = day.firstDepartingAt(departAfter); i < day.size() && day.departure(i) < best; i++) {
+                final int connection = day.connection(i);
+                final int from = graph.origin(connection);
+                if (!reached[from] || from == destination) {
+                    continue;
+                }
+                final int to = graph.destination(connection);
+                if (to == origin) {
+                    continue;
+                }
+                final TransportationType type = graph.type(connection);
+                for (int state = 0; state < states; state++) {
+                    final int index = from * states + state;
+                    if (arrival[index] != UNREACHED && ready(index) <= day.departure(i)) {
+                        final int next = rules.next(state, type);
+                        if (next != RouteRules.REJECT) {
+                            reach(to, next, day.arrival(i), connection, index, day.departure(i));
+                        }
+                    }
+                }
+            }
+            return bestIndex == NONE ? null : journey();
+        }
+
+        private int ready(int index) {
+            return previous[index] == NONE ? arrival[index] : arrival[index] + minTransferMinutes;
+        }
+
+        /**
+         * Records arriving at {@code location} in {@code state} at {@code time} if that is earlier than before, and
+         * follows the untimed transportations from there.
+         */
+        private void reach(int location, int state, int time, int transportation, int from, int departure) {
+            final int index = location * states + state;
+            if (time >= arrival[index]) {
+                return;
+            }
+            scratch.touch(index);
+            reached[location] = true;
+            arrival[index] = time;
+            previous[index] = from;
+            leg[index] = transportation;
+            legDeparture[index] = departure;
+            if (location == destination) {
+                if (rules.accepts(state) && time < best) {
+                    best = time;
+                    bestIndex = index;
+                }
+                return;
+            }
+            followUntimed(location, state, ready(index), index);
+        }
+
+        private void followUntimed(int location, int state, int departure, int index) {
+            for (int k = 0; k < day.untimedCount(location); k++) {
+                final int transportation = day.untimed(location, k);
+                final int to = graph.destination(transportation);
+                final int next = rules.next(state, graph.type(transportation));
+                if (to != origin && next != RouteRules.REJECT) {
+                    reach(to, next, departure + graph.duration(transportation), transportation, index, departure);
+                }
+            }
+        }
+
+        private Journey journey() {
+            int length = 0;
+            for (int index = bestIndex; previous[index] != NONE; index = previous[index]) {
+                length++;
+            }
+            final int[] legs = new int[length];
+            final int[] departures = new int[length];
+            final int[] arrivals = new int[length];
+            int index = bestIndex;
+            for (int i = length - 1; i >= 0; i--) {
+                legs[i] = leg[index];
+                departures[i] = legDeparture[index];
+                arrivals[i] = arrival[index];
+                index = previous[index];
+            }
+            return new Journey(legs, departures, arrivals);
+        }
+    }
+
+    /**
+     * Arrays of {@link Scan} for one thread, indexed by location and automaton state. Unreached entries hold
+     * {@link #UNREACHED}; the others are listed in {@code touched} until {@link #clear()} resets them.
+     */
+    private static final class Scratch {
+        private final int states;
+        private final boolean[] reached;
+        private final int[] arrival;
+        private final int[] previous;
+        private final int[] leg;
+        private final int[] legDeparture;
+        private final int[] touched;
+        private int touchedCount;
+
+        private Scratch(int locationCount, int states) {
+            final int size = locationCount * states;
+            this.states = states;
+            this.reached = new boolean[locationCount];
+            this.arrival = new int[size];
+            this.previous = new int[size];
+            this.leg = new int[size];
+            this.legDeparture = new int[size];
+            this.touched = new int[size];
+            Arrays.fill(arrival, UNREACHED);
+        }
+
+        private boolean fits(int locationCount) {
+            return reached.length >= locationCount;
+        }
+
+        /**
+         * Records that {@code index} is about to be reached, before its arrival is written.
+         */
+        private void touch(int index) {
+            if (arrival[index] == UNREACHED) {
+                touched[touchedCount++] = index;
+            }
+        }
+
+        private void clear() {
+            for (int i = 0; i < touchedCount; i++) {
+                arrival[touched[i]] = UNREACHED;
+                reached[touched[i] / states] = false;
+            }
+            touchedCount = 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Generic depth-first enumeration of the routes allowed by any {@link RouteRules}.
+ * <p>
+ * The rule automaton is stepped on every leg, so a branch is dropped as soon as no valid route can start with it
+ * instead of being validated once the destination is reached. The other engines fall back to this one for rules they
+ * are not specialised for.
+ */
+@Component
+@ConditionalOnProperty(name = "aviation.routes.engine", havingValue = "depth-first")
+public class DepthFirstRouteEngine implements RouteEngine {
+    private static final int ANY_LENGTH = 0;
+
+    private final RouteRules rules;
+
+    public DepthFirstRouteEngine(RouteRules rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes) {
+        findRoutesWithLegs(graph, origin, destination, day, ANY_LENGTH, routes);
+    }
+
+    /**
+     * Like {@link #findRoutes}, restricted to routes of exactly {@code legCount} legs; {@code 0} allows any length.
+     */
+    public void findRoutesWithLegs(TransitGraph graph,
+                                   int origin,
+                                   int destination,
+                                   int day,
+                                   int legCount,
+                                   Consumer<int[]> routes) {
+        final boolean[] visited = new boolean[graph.locationCount()];
+        dfs(graph, graph.outgoing(day), origin, destination, legCount, new int[rules.maxLegs()], 0, rules.start(),
+                visited, routes);
+    }
+
+    /**
+     * Emits every valid route leaving {@code origin} on {@code day}, together with the location it ends at.
+     */
+    public void findRoutesFrom(TransitGraph graph, int origin, int day, ObjIntConsumer<int[]> routes) {
+        final boolean[] visited = new boolean[graph.locationCount()];
+        dfsFrom(graph, graph.outgoing(day), origin, new int[rules.maxLegs()], 0, rules.start(), visited, routes);
+    }
+
+    private void dfs(TransitGraph graph,
+                     TransitGraph.Adjacency outgoing,
+                     int current,
+                     int target,
+                     int legCount,
+                     int[] path,
+                     int depth,
+                     int state,
+                     boolean[] visited,
+                     Consumer<int[]> routes) {
+
+        // Check if we reached the target
+        if (current == target) {
+            // Only emit the route if the rules accept it
+            if (depth > 0 && rules.accepts(state) && (legCount == ANY_LENGTH || depth == legCount)) {
+                routes.accept(Arrays.copyOf(path, depth));
+            }
+            return;
+        }
+        if (legCount != ANY_LENGTH && depth == legCount) {
+            return;
+        }
+
+        visited[current] = true;
+
+        for (int k = 0; k < outgoing.size(current); k++) {
+            final int transportation = outgoing.edge(current, k);
+            final int next = rules.next(state, graph.type(transportation));
+            if (next != RouteRules.REJECT && !visited[graph.destination(transportation)]) {
+                path[depth] = transportation;
+                dfs(graph, outgoing, graph.destination(transportation), target, legCount, path, depth + 1, next,
+                        visited, routes);
+            }
+        }
+
+        visited[current] = false;
+    }
+
+    private void dfsFrom(TransitGraph graph,
+                         TransitGraph.Adjacency outgoing,
+                         int current,
+                         int[] path,
+                         int depth,
+                         int state,
+                         boolean[] visited,
+                         ObjIntConsumer<int[]> routes) {
+        visited[current] = true;
+
+        for (int k = 0; k < outgoing.size(current); k++) {
+            final int transportation = outgoing.edge(current, k);
+            final int destination = graph.destination(transportation);
+            final int next = rules.next(state, graph.type(transportation));
+            if (next != RouteRules.REJECT && !visited[destination]) {
+                path[depth] = transportation;
+                if (rules.accepts(next)) {
+                    routes.accept(Arrays.copyOf(path, depth + 1), destination);
+                }
+                dfsFrom(graph, outgoing, destination, path, depth + 1, next, visited, routes);
+            }
+        }
+
+        visited[current] = false;
+    }
+}
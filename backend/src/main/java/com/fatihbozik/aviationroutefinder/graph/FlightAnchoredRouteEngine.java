@@ -0,0 +1,106 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Builds routes around their single flight: (optional ground leg into airport A) × (flight A → B) × (optional ground
+ * leg from B).
+ * <p>
+ * Only the flights leaving the origin or a location one ground leg away are considered, and the closing ground leg is
+ * looked up in the destination's incoming ground transportations, so the cost follows the number of matching flights
+ * instead of the fan-out of every location on the way. Routes are emitted in the same order as
+ * {@link DepthFirstRouteEngine}.
+ * <p>
+ * This shape is {@link RouteRules#DEFAULT}; any other rules are searched by {@link DepthFirstRouteEngine}.
+ */
+@Component
+@ConditionalOnProperty(name = "aviation.routes.engine", havingValue = "flight-anchored", matchIfMissing = true)
+public class FlightAnchoredRouteEngine implements RouteEngine {
+    private final DepthFirstRouteEngine generic;
+
+    public FlightAnchoredRouteEngine(RouteRules rules) {
+        this.generic = rules.isDefault() ? null : new DepthFirstRouteEngine(rules);
+    }
+
+    @Override
+    public void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes) {
+        if (generic != null) {
+            generic.findRoutes(graph, origin, destination, day, routes);
+            return;
+        }
+        if (origin == destination) {
+            return;
+        }
+        final TransitGraph.Adjacency outgoing = graph.outgoing(day);
+        final TransitGraph.Adjacency flights = graph.flights(day);
+        final TransitGraph.Adjacency groundArrivals = graph.groundArrivals(day);
+
+        for (int i = 0; i < outgoing.size(origin); i++) {
+            final int first = outgoing.edge(origin, i);
+            final int next = graph.destination(first);
+            if (next == origin) {
+                continue;
+            }
+            if (graph.isFlight(first)) {
+                if (next == destination) {
+                    routes.accept(new int[]{first});
+                } else {
+                    emitWithGroundLeg(graph, groundArrivals, next, destination, routes, first);
+                }
+            } else if (next != destination) {
+                for (int j = 0; j < flights.size(next); j++) {
+                    final int flight = flights.edge(next, j);
+                    final int landing = graph.destination(flight);
+                    if (landing == destination) {
+                        routes.accept(new int[]{first, flight});
+                    } else if (landing != origin && landing != next) {
+                        emitWithGroundLeg(graph, groundArrivals, landing, destination, routes, first, flight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Emits {@code legs} followed by each ground transportation from {@code from} to {@code destination}.
+     */
+    private void emitWithGroundLeg(TransitGraph graph,
+                                   TransitGraph.Adjacency groundArrivals,
+                                   int from,
+                                   int destination,
+                                   Consumer<int[]> routes,
+                                   int... legs) {
+        final int size = groundArrivals.size(destination);
+        for (int i = firstFrom(graph, groundArrivals, from, destination); i < size; i++) {
+            final int ground = groundArrivals.edge(destination, i);
+            if (graph.origin(ground) != from) {
+                break;
+            }
+            final int[] route = new int[legs.length + 1];
+            System.arraycopy(legs, 0, route, 0, legs.length);
+            route[legs.length] = ground;
+            routes.accept(route);
+        }
+    }
+
+    /**
+     * Binary search for the first ground transportation into {@code destination} whose origin is not before
+     * {@code from}; the segment is ordered by origin.
+     */
+    private int firstFrom(TransitGraph graph, TransitGraph.Adjacency groundArrivals, int from, int destination) {
+        int low = 0;
+        int high = groundArrivals.size(destination);
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (graph.origin(groundArrivals.edge(destination, mid)) < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
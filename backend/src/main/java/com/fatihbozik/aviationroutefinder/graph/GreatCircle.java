@@ -0,0 +1,31 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+/**
+ * Distances on the earth, modelled as a sphere with the mean earth radius.
+ */
+public final class GreatCircle {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GreatCircle() {
+    }
+
+    /**
+     * @return the great-circle distance in kilometres between two points given in degrees
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        final double phi1 = Math.toRadians(latitude1);
+        final double phi2 = Math.toRadians(latitude2);
+        final double sinHalfLatitude = Math.sin((phi2 - phi1) / 2);
+        final double sinHalfLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        final double h = sinHalfLatitude * sinHalfLatitude
+                         + Math.cos(phi1) * Math.cos(phi2) * sinHalfLongitude * sinHalfLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * @return whether {@code latitude} and {@code longitude} are valid coordinates in degrees
+     */
+    public static boolean isValid(double latitude, double longitude) {
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+}
@@ -0,0 +1,289 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Depth-first search guided by great-circle distances, for schedules with dense metro areas where many ground legs
+ * connect nearby locations.
+ * <p>
+ * Once the {@link RouteRules} allow no further flight, the rest of a route is at most a known number of ground legs,
+ * none longer than the longest ground leg of the schedule. A leg whose arrival is farther from the destination than
+ * those legs can cover is dropped, together with everything behind it; this bound never loses a route. It only applies
+ * while every ground leg connects two locations with coordinates.
+ * <p>
+ * A ground leg from {@code u} to {@code v} is dropped when the detour it starts is too long:
+ * {@code d(u, v) + d(v, destination) > detour-ratio × d(u, destination) + min-detour-km}. The straight line from
+ * {@code v} is a lower bound of the rest of the route, so a dropped leg can only lead to routes that wander away from
+ * the destination. Flights are never dropped. At every location the remaining candidates are tried in order of their
+ * geometric progress, the distance left to the destination after the leg, so routes heading the right way come first.
+ * Legs from or to a location without coordinates are never dropped and are tried last.
+ * <p>
+ * Unlike the other engines this one is a heuristic: routes with long ground detours are left out, and routes are
+ * emitted in order of progress rather than in {@link DepthFirstRouteEngine} order. Pruning counters are kept per engine
+ * and logged per search at debug level; {@code GET /api/routes/engine/statistics} reports their totals.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "aviation.routes.engine", havingValue = "great-circle")
+public class GreatCircleRouteEngine implements RouteEngine {
+    private static final double NOT_COMPUTED = -1;
+    private static final int UNBOUNDED = -1;
+    private static final int UNKNOWN = -2;
+    // Slack for rounding in the distance sums, so the exact bound never drops a route
+    private static final double TOLERANCE_KM = 1e-6;
+
+    private final RouteRules rules;
+    private final double detourRatio;
+    private final double minDetourKm;
+    private final int[] groundLegsLeft;
+
+    private final PerGraph<Double> groundReach = new PerGraph<>(GreatCircleRouteEngine::maxGroundLegKm);
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder examinedLegs = new LongAdder();
+    private final LongAdder detourLegs = new LongAdder();
+    private final LongAdder unreachableLegs = new LongAdder();
+
+    public GreatCircleRouteEngine(RouteRules rules,
+                                  @Value("${aviation.routes.great-circle.detour-ratio:1.5}") double detourRatio,
+                                  @Value("${aviation.routes.great-circle.min-detour-km:50}") double minDetourKm) {
+        if (detourRatio < 1 || minDetourKm < 0) {
+            throw new IllegalArgumentException("Detour ratio must be at least 1 and the minimum detour not negative");
+        }
+        this.rules = rules;
+        this.detourRatio = detourRatio;
+        this.minDetourKm = minDetourKm;
+        this.groundLegsLeft = new int[rules.stateCount()];
+        Arrays.fill(groundLegsLeft, UNKNOWN);
+        for (int state = 0; state < groundLegsLeft.length; state++) {
+            groundLegsLeft(state);
+        }
+    }
+
+    /**
+     * @return the most legs a route can still take from {@code state} if none of them can be a flight, otherwise
+     * {@link #UNBOUNDED}
+     */
+    private int groundLegsLeft(int state) {
+        if (groundLegsLeft[state] == UNKNOWN) {
+            int most = 0;
+            for (TransportationType type : TransportationType.values()) {
+                final int next = rules.next(state, type);
+                if (next == RouteRules.REJECT) {
+                    continue;
+                }
+                final int left = type == TransportationType.FLIGHT ? UNBOUNDED : groundLegsLeft(next);
+                if (left == UNBOUNDED) {
+                    most = UNBOUNDED;
+                    break;
+                }
+                most = Math.max(most, left + 1);
+            }
+            groundLegsLeft[state] = most;
+        }
+        return groundLegsLeft[state];
+    }
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        groundReach.get(event.graph());
+    }
+
+    @Override
+    public void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes) {
+        final Search search = new Search(graph, graph.outgoing(day), destination, groundReach.get(graph), routes);
+        search.dfs(origin, 0, rules.start());
+
+        searches.increment();
+        examinedLegs.add(search.examined);
+        detourLegs.add(search.detours);
+        unreachableLegs.add(search.unreachable);
+        LOG.debug("Route search from {} to {} on day {} examined {} legs, dropped {} detours and {} out of reach",
+                graph.locationCode(origin), graph.locationCode(destination), day,
+                search.examined, search.detours, search.unreachable);
+    }
+
+    /**
+     * @return the pruning counters since startup
+     */
+    public Statistics statistics() {
+        return new Statistics(searches.sum(), examinedLegs.sum(), detourLegs.sum(), unreachableLegs.sum());
+    }
+
+    /**
+     * @param searches        number of searches run
+     * @param examinedLegs    legs allowed by the rules that led to an unvisited location
+     * @param detourLegs      examined ground legs dropped as too long a detour
+     * @param unreachableLegs examined legs dropped because the destination is out of reach after them
+     */
+    public record Statistics(long searches, long examinedLegs, long detourLegs, long unreachableLegs) {
+    }
+
+    /**
+     * @return length of the longest ground leg of {@code graph}, or infinity if a ground leg has an end without
+     * coordinates
+     */
+    private static double maxGroundLegKm(TransitGraph graph) {
+        final TransitGraph.Adjacency outgoing = graph.outgoing();
+        double longest = 0;
+        for (int location = 0; location < graph.locationCount(); location++) {
+            for (int k = 0; k < outgoing.size(location); k++) {
+                final int transportation = outgoing.edge(location, k);
+                if (graph.isFlight(transportation)) {
+                    continue;
+                }
+                final Location from = graph.location(location);
+                final Location to = graph.location(graph.destination(transportation));
+                if (!from.hasCoordinates() || !to.hasCoordinates()) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                longest = Math.max(longest,
+                        GreatCircle.distanceKm(from.latitude(), from.longitude(), to.latitude(), to.longitude()));
+            }
+        }
+        return longest;
+    }
+
+    private final class Search {
+        private final TransitGraph graph;
+        private final TransitGraph.Adjacency outgoing;
+        private final int destination;
+        private final double maxGroundLegKm;
+        private final Consumer<int[]> routes;
+
+        private final boolean[] visited;
+        private final double[] remaining;
+        private final int[] path = new int[rules.maxLegs()];
+        private final int[][] candidates = new int[rules.maxLegs()][];
+        private long examined;
+        private long detours;
+        private long unreachable;
+
+        private Search(TransitGraph graph,
+                       TransitGraph.Adjacency outgoing,
+                       int destination,
+                       double maxGroundLegKm,
+                       Consumer<int[]> routes) {
+            this.graph = graph;
+            this.outgoing = outgoing;
+            this.destination = destination;
+            this.maxGroundLegKm = maxGroundLegKm;
+            this.routes = routes;
+            this.visited = new boolean[graph.locationCount()];
+            this.remaining = new double[graph.locationCount()];
+            Arrays.fill(remaining, NOT_COMPUTED);
+        }
+
+        private void dfs(int current, int depth, int state) {
+            if (current == destination) {
+                if (depth > 0 && rules.accepts(state)) {
+                    routes.accept(Arrays.copyOf(path, depth));
+                }
+                return;
+            }
+            if (depth == path.length) {
+                return;
+            }
+
+            visited[current] = true;
+            final int count = collectCandidates(current, depth, state);
+            for (int i = 0; i < count; i++) {
+                final int transportation = candidates[depth][i];
+                path[depth] = transportation;
+                dfs(graph.destination(transportation), depth + 1, rules.next(state, graph.type(transportation)));
+            }
+            visited[current] = false;
+        }
+
+        /**
+         * Fills {@code candidates[depth]} with the legs worth following from {@code current}, by progress.
+         *
+         * @return the number of candidates
+         */
+        private int collectCandidates(int current, int depth, int state) {
+            final int size = outgoing.size(current);
+            if (candidates[depth] == null || candidates[depth].length < size) {
+                candidates[depth] = new int[Math.max(size, 8)];
+            }
+            final int[] legs = candidates[depth];
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                final int transportation = outgoing.edge(current, k);
+                final int next = graph.destination(transportation);
+                final int nextState = rules.next(state, graph.type(transportation));
+                if (visited[next] || nextState == RouteRules.REJECT) {
+                    continue;
+                }
+                examined++;
+                if (isOutOfReach(next, nextState)) {
+                    unreachable++;
+                    continue;
+                }
+                if (!graph.isFlight(transportation) && isDetour(current, next)) {
+                    detours++;
+                    continue;
+                }
+                // Insertion sort: segments are short, and equal progress keeps schedule order
+                final double progress = progress(next);
+                int i = count++;
+                while (i > 0 && progress(graph.destination(legs[i - 1])) > progress) {
+                    legs[i] = legs[i - 1];
+                    i--;
+                }
+                legs[i] = transportation;
+            }
+            return count;
+        }
+
+        private boolean isOutOfReach(int location, int state) {
+            final int legsLeft = groundLegsLeft[state];
+            final double distance = remaining(location);
+            return legsLeft != UNBOUNDED && !Double.isNaN(distance)
+                   && distance > legsLeft * maxGroundLegKm + TOLERANCE_KM;
+        }
+
+        private boolean isDetour(int from, int to) {
+            final double fromRemaining = remaining(from);
+            final double toRemaining = remaining(to);
+            if (Double.isNaN(fromRemaining) || Double.isNaN(toRemaining)) {
+                return false;
+            }
+            final Location a = graph.location(from);
+            final Location b = graph.location(to);
+            final double leg = GreatCircle.distanceKm(a.latitude(), a.longitude(), b.latitude(), b.longitude());
+            return leg + toRemaining > detourRatio * fromRemaining + minDetourKm;
+        }
+
+        /**
+         * @return the distance left after arriving at {@code location}; locations without coordinates sort last
+         */
+        private double progress(int location) {
+            final double distance = remaining(location);
+            return Double.isNaN(distance) ? Double.POSITIVE_INFINITY : distance;
+        }
+
+        /**
+         * @return the great-circle distance from {@code location} to the destination, or {@code NaN} if one of them
+         * has no coordinates
+         */
+        private double remaining(int location) {
+            if (remaining[location] == NOT_COMPUTED) {
+                final Location from = graph.location(location);
+                final Location to = graph.location(destination);
+                remaining[location] = from.hasCoordinates() && to.hasCoordinates()
+                        ? GreatCircle.distanceKm(from.latitude(), from.longitude(), to.latitude(), to.longitude())
+                        : Double.NaN;
+            }
+            return remaining[location];
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+/**
+ * A route with the time each leg is taken at, in minutes after midnight of the searched day. Times past midnight
+ * exceed {@code 1440}.
+ *
+ * @param legs       transportation indexes, in travel order
+ * @param departures departure time of each leg
+ * @param arrivals   arrival time of each leg
+ */
+public record Journey(int[] legs, int[] departures, int[] arrivals) {
+
+    public int departure() {
+        return departures[0];
+    }
+
+    public int arrival() {
+        return arrivals[arrivals.length - 1];
+    }
+}
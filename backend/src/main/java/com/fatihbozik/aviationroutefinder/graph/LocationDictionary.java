@@ -0,0 +1,74 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Location codes of one graph version in case-insensitive order, for lookups that do not know the exact spelling of a
+ * code or only its beginning.
+ */
+final class LocationDictionary {
+    private final String[] keys;
+    private final int[] locations;
+
+    private LocationDictionary(String[] keys, int[] locations) {
+        this.keys = keys;
+        this.locations = locations;
+    }
+
+    static LocationDictionary of(Map<String, Integer> indexByCode) {
+        @SuppressWarnings("unchecked")
+        final Map.Entry<String, Integer>[] entries = indexByCode.entrySet().toArray(Map.Entry[]::new);
+        Arrays.sort(entries, Comparator.comparing((Map.Entry<String, Integer> entry) -> key(entry.getKey()))
+                .thenComparing(Map.Entry::getKey));
+        final String[] keys = new String[entries.length];
+        final int[] locations = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            keys[i] = key(entries[i].getKey());
+            locations[i] = entries[i].getValue();
+        }
+        return new LocationDictionary(keys, locations);
+    }
+
+    private static String key(String code) {
+        return code.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the location whose code equals {@code code} ignoring case, or {@code -1} if there is none
+     */
+    int find(String code) {
+        final String key = key(code);
+        final int i = lowerBound(key);
+        return i < keys.length && keys[i].equals(key) ? locations[i] : -1;
+    }
+
+    /**
+     * @return up to {@code limit} locations whose code starts with {@code prefix} ignoring case, in code order
+     */
+    int[] findByPrefix(String prefix, int limit) {
+        final String key = key(prefix);
+        final int from = lowerBound(key);
+        int to = from;
+        while (to < keys.length && to - from < limit && keys[to].startsWith(key)) {
+            to++;
+        }
+        return Arrays.copyOfRange(locations, from, to);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
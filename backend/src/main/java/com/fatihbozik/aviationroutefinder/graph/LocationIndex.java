@@ -0,0 +1,260 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+
+/**
+ * Static k-d tree over the locations of one graph version that have coordinates, as searched by
+ * {@link NearestLocationFinder}.
+ * <p>
+ * Locations are stored as points on the unit sphere. The straight-line distance between two such points grows with
+ * their great-circle distance, so a plain three-dimensional nearest-neighbour search needs no special handling of the
+ * poles or the antimeridian. The tree is implicit: every range of the arrays holds its median in the middle, split on
+ * the axis stored for it, with the two subtrees on either side.
+ */
+final class LocationIndex {
+    private final int[] locations;
+    private final double[][] points;
+    private final byte[] axes;
+
+    private LocationIndex(int[] locations, double[][] points) {
+        this.locations = locations;
+        this.points = points;
+        this.axes = new byte[locations.length];
+        split(0, locations.length);
+    }
+
+    static LocationIndex build(TransitGraph graph) {
+        int count = 0;
+        for (int location = 0; location < graph.locationCount(); location++) {
+            if (hasCoordinates(graph, location)) {
+                count++;
+            }
+        }
+        final int[] locations = new int[count];
+        final double[][] points = new double[3][count];
+        int i = 0;
+        for (int location = 0; location < graph.locationCount(); location++) {
+            if (hasCoordinates(graph, location)) {
+                final Location value = graph.location(location);
+                final double[] point = point(value.latitude(), value.longitude());
+                locations[i] = location;
+                for (int axis = 0; axis < 3; axis++) {
+                    points[axis][i] = point[axis];
+                }
+                i++;
+            }
+        }
+        return new LocationIndex(locations, points);
+    }
+
+    private static boolean hasCoordinates(TransitGraph graph, int location) {
+        return !graph.isRemoved(location) && graph.location(location).hasCoordinates();
+    }
+
+    private static double[] point(double latitude, double longitude) {
+        final double phi = Math.toRadians(latitude);
+        final double lambda = Math.toRadians(longitude);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    /**
+     * @return up to {@code k} location indexes, nearest first
+     */
+    int[] nearest(double latitude, double longitude, int k) {
+        final Query query = new Query(point(latitude, longitude), Math.min(k, locations.length));
+        if (query.capacity > 0) {
+            search(0, locations.length, query);
+        }
+        return query.sorted();
+    }
+
+    private void search(int low, int high, Query query) {
+        if (low >= high) {
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        query.offer(locations[mid], squaredDistance(query.point, mid));
+
+        final int axis = axes[mid];
+        final double offset = query.point[axis] - points[axis][mid];
+        if (offset < 0) {
+            search(low, mid, query);
+            if (offset * offset < query.bound()) {
+                search(mid + 1, high, query);
+            }
+        } else {
+            search(mid + 1, high, query);
+            if (offset * offset < query.bound()) {
+                search(low, mid, query);
+            }
+        }
+    }
+
+    private double squaredDistance(double[] point, int i) {
+        double sum = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            final double delta = point[axis] - points[axis][i];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    /**
+     * Moves the median of {@code [low, high)} on its widest axis to the middle and splits both halves the same way.
+     */
+    private void split(int low, int high) {
+        if (high - low < 2) {
+            return;
+        }
+        final int axis = widestAxis(low, high);
+        final int mid = (low + high) >>> 1;
+        select(points[axis], low, high - 1, mid);
+        axes[mid] = (byte) axis;
+        split(low, mid);
+        split(mid + 1, high);
+    }
+
+    private int widestAxis(int low, int high) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = low; i < high; i++) {
+                min = Math.min(min, points[axis][i]);
+                max = Math.max(max, points[axis][i]);
+            }
+            if (max - min > widestSpread) {
+                widest = axis;
+                widestSpread = max - min;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Reorders {@code [left, right]} so that position {@code k} holds the value it would hold if sorted by
+     * {@code values}, with no larger value before it and no smaller value after it.
+     */
+    private void select(double[] values, int left, int right, int k) {
+        while (left < right) {
+            final double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        final int location = locations[i];
+        locations[i] = locations[j];
+        locations[j] = location;
+        for (double[] values : points) {
+            final double value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Bounded max-heap of the {@code capacity} nearest locations seen so far.
+     */
+    private static final class Query {
+        private final double[] point;
+        private final int capacity;
+        private final int[] heap;
+        private final double[] distances;
+        private int size;
+
+        private Query(double[] point, int capacity) {
+            this.point = point;
+            this.capacity = capacity;
+            this.heap = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        private double bound() {
+            return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        private void offer(int location, double distance) {
+            if (size < capacity) {
+                heap[size] = location;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (distance < distances[0]) {
+                heap[0] = location;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        private int[] sorted() {
+            final int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = heap[0];
+                size--;
+                heap[0] = heap[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                final int left = 2 * i + 1;
+                final int right = left + 1;
+                int largest = i;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            final int location = heap[i];
+            heap[i] = heap[j];
+            heap[j] = location;
+            final double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nearest-location lookup over an in-memory {@link LocationIndex}, so locations can be found by coordinates instead of
+ * by code. Locations without coordinates are never returned.
+ * <p>
+ * The index is built when a graph version is published and kept until the locations change; transportation changes
+ * reuse it.
+ */
+@Component
+public class NearestLocationFinder {
+    private final PerGraph<LocationIndex> index =
+            new PerGraph<>(LocationIndex::build, (built, graph) -> built == graph || built.hasSameLocations(graph));
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        index.get(event.graph());
+    }
+
+    /**
+     * @return the indexes of up to {@code k} locations of {@code graph} closest to the given point, nearest first
+     */
+    public int[] findNearest(TransitGraph graph, double latitude, double longitude, int k) {
+        if (!GreatCircle.isValid(latitude, longitude)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of locations must be positive");
+        }
+        return index.get(graph).nearest(latitude, longitude, k);
+    }
+}
@@ -0,0 +1,53 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes ISO operating days ({@code 1} = Monday … {@code 7} = Sunday) as a 7-bit mask.
+ */
+public final class OperatingDays {
+    public static final int DAYS_PER_WEEK = 7;
+    public static final int ALL_DAYS = (1 << DAYS_PER_WEEK) - 1;
+
+    private OperatingDays() {
+    }
+
+    public static int toMask(Collection<Integer> days) {
+        int mask = 0;
+        if (days != null) {
+            for (Integer day : days) {
+                if (day != null && isValid(day)) {
+                    mask |= bit(day);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the days of the mask in ascending order
+     */
+    public static List<Integer> toList(int mask) {
+        final List<Integer> days = new ArrayList<>(Integer.bitCount(mask));
+        for (int day = 1; day <= DAYS_PER_WEEK; day++) {
+            if (contains(mask, day)) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    public static boolean contains(int mask, int day) {
+        return isValid(day) && (mask & bit(day)) != 0;
+    }
+
+    public static boolean isValid(int day) {
+        return day >= 1 && day <= DAYS_PER_WEEK;
+    }
+
+    private static int bit(int day) {
+        return 1 << (day - 1);
+    }
+}
@@ -0,0 +1,50 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * A value derived from a graph, such as an index, built on first use for each graph and kept for the newest version
+ * only. Searches on an older graph still get a value for their graph, built for them and not kept.
+ *
+ * @param <T> type of the derived value
+ */
+final class PerGraph<T> {
+    private final AtomicReference<Built<T>> current = new AtomicReference<>();
+    private final Function<TransitGraph, T> builder;
+    private final BiPredicate<TransitGraph, TransitGraph> reusable;
+
+    /**
+     * @param builder derives the value of a graph
+     */
+    PerGraph(Function<TransitGraph, T> builder) {
+        this(builder, (built, graph) -> built == graph);
+    }
+
+    /**
+     * @param builder  derives the value of a graph
+     * @param reusable whether the value built for the first graph also holds for the second
+     */
+    PerGraph(Function<TransitGraph, T> builder, BiPredicate<TransitGraph, TransitGraph> reusable) {
+        this.builder = builder;
+        this.reusable = reusable;
+    }
+
+    /**
+     * @return the value of {@code graph}, building it unless the kept value holds for it
+     */
+    T get(TransitGraph graph) {
+        final Built<T> kept = current.get();
+        if (kept != null && reusable.test(kept.graph(), graph)) {
+            return kept.value();
+        }
+        final Built<T> built = new Built<>(graph, builder.apply(graph));
+        current.accumulateAndGet(built, (previous, next) ->
+                previous == null || previous.graph().version() < next.graph().version() ? next : previous);
+        return built.value();
+    }
+
+    private record Built<T>(TransitGraph graph, T value) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Answers route searches from a {@link RouteMatrix} precomputed for all location pairs and weekdays.
+ * <p>
+ * The matrix is rebuilt in the background on a bounded pool every time a new graph version is published. Until the
+ * matrix of the searched graph version is complete, searches are delegated to the configured live engine, so answers
+ * never come from an outdated schedule. A rebuild still running when the next version arrives is abandoned.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "aviation.routes.matrix.enabled", havingValue = "true")
+public class PrecomputedRouteEngine implements RouteEngine {
+    private final RouteEngine liveEngine;
+    private final ReachabilityEngine reachabilityEngine;
+    private final ExecutorService workers;
+
+    private final AtomicReference<RouteMatrix> matrix = new AtomicReference<>();
+    private final AtomicLong latestVersion = new AtomicLong(-1);
+
+    public PrecomputedRouteEngine(RouteEngine liveEngine,
+                                  ReachabilityEngine reachabilityEngine,
+                                  @Value("${aviation.routes.matrix.threads:2}") int threads) {
+        this.liveEngine = liveEngine;
+        this.reachabilityEngine = reachabilityEngine;
+        this.workers = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("route-matrix-", 0).daemon().factory());
+    }
+
+    @Override
+    public void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes) {
+        final RouteMatrix current = matrix.get();
+        if (current != null && current.version() == graph.version()) {
+            current.findRoutes(origin, destination, day, routes);
+        } else {
+            liveEngine.findRoutes(graph, origin, destination, day, routes);
+        }
+    }
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        rebuild(event.graph());
+    }
+
+    /**
+     * Starts computing the matrix of {@code graph}, one task per origin.
+     *
+     * @return completes once the matrix is published, or skipped because a newer version arrived
+     */
+    CompletableFuture<Void> rebuild(TransitGraph graph) {
+        latestVersion.set(graph.version());
+        final RouteMatrix next = new RouteMatrix(graph.version(), graph.locationCount());
+        final int total = graph.locationCount();
+        final AtomicInteger done = new AtomicInteger();
+
+        final CompletableFuture<?>[] tasks = new CompletableFuture<?>[total];
+        for (int origin = 0; origin < total; origin++) {
+            final int from = origin;
+            tasks[origin] = CompletableFuture.runAsync(() -> {
+                if (isSuperseded(graph)) {
+                    return;
+                }
+                next.computeRows(graph, reachabilityEngine, from);
+                reportProgress(graph, done.incrementAndGet(), total);
+            }, workers);
+        }
+
+        return CompletableFuture.allOf(tasks).handle((ignored, ex) -> {
+            if (ex != null) {
+                LOG.warn("Could not compute the route matrix of graph version {}", graph.version(), ex);
+            } else if (isSuperseded(graph)) {
+                LOG.debug("Abandoned the route matrix of graph version {}", graph.version());
+            } else {
+                matrix.set(next);
+                LOG.info("Route matrix of graph version {} is ready", graph.version());
+            }
+            return null;
+        });
+    }
+
+    private boolean isSuperseded(TransitGraph graph) {
+        return latestVersion.get() != graph.version();
+    }
+
+    private void reportProgress(TransitGraph graph, int done, int total) {
+        if (done * 10 / total != (done - 1) * 10 / total) {
+            LOG.info("Route matrix of graph version {}: {}% ({}/{} origins)",
+                    graph.version(), done * 100 / total, done, total);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
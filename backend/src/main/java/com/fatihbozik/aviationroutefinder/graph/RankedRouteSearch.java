@@ -0,0 +1,157 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Finds the best valid routes between two locations under a {@link RouteRanking}, holding no more routes than
+ * requested.
+ * <p>
+ * Routes are generated by increasing number of legs and kept in a priority queue bounded to the requested count. Once
+ * the queue is full of penalty-free routes shorter than the next length, no longer route can displace them and the
+ * search stops. Rankings that penalize routes may never reach that point and then enumerate every route. Ties are
+ * broken by transportation ids, so the order is total and pages of the same graph version never overlap or skip
+ * routes.
+ */
+@Component
+public class RankedRouteSearch {
+    private final RouteRules rules;
+    private final DepthFirstRouteEngine generic;
+
+    public RankedRouteSearch(RouteRules rules) {
+        this.rules = rules;
+        this.generic = rules.isDefault() ? null : new DepthFirstRouteEngine(rules);
+    }
+
+    /**
+     * @return the first {@code count} valid routes from {@code origin} to {@code destination} on {@code day} in
+     * {@code ranking} order, each as the transportation indexes of its legs
+     */
+    public List<int[]> findTopRoutes(TransitGraph graph,
+                                     int origin,
+                                     int destination,
+                                     int day,
+                                     RouteRanking ranking,
+                                     int count) {
+        if (count <= 0 || origin == destination) {
+            return new ArrayList<>();
+        }
+        final Comparator<RankedRoute> order = Comparator.comparingInt(RankedRoute::penalty)
+                .thenComparingInt(route -> route.legs().length)
+                .thenComparing((left, right) -> compareIds(graph, left.legs(), right.legs()));
+        final PriorityQueue<RankedRoute> best = new PriorityQueue<>(order.reversed());
+
+        final Consumer<int[]> offer = legs -> {
+            final RankedRoute route = new RankedRoute(legs, ranking.penalty(graph, legs));
+            if (best.size() < count) {
+                best.add(route);
+            } else if (order.compare(route, best.peek()) < 0) {
+                best.poll();
+                best.add(route);
+            }
+        };
+        for (int legCount = 1; legCount <= rules.maxLegs(); legCount++) {
+            if (best.size() == count && best.peek().penalty() == 0 && best.peek().legs().length < legCount) {
+                break;
+            }
+            routesWithLegs(graph, origin, destination, day, legCount, offer);
+        }
+
+        final List<RankedRoute> ranked = new ArrayList<>(best);
+        ranked.sort(order);
+        final List<int[]> result = new ArrayList<>(ranked.size());
+        for (RankedRoute route : ranked) {
+            result.add(route.legs());
+        }
+        return result;
+    }
+
+    /**
+     * Emits the valid routes with exactly {@code legCount} legs. Under the default rules those are a flight, a flight
+     * with a ground leg before or after it, or a flight between two ground legs.
+     */
+    private void routesWithLegs(TransitGraph graph,
+                                int origin,
+                                int destination,
+                                int day,
+                                int legCount,
+                                Consumer<int[]> routes) {
+        if (generic != null) {
+            generic.findRoutesWithLegs(graph, origin, destination, day, legCount, routes);
+            return;
+        }
+        final TransitGraph.Adjacency outgoing = graph.outgoing(day);
+        final TransitGraph.Adjacency flights = graph.flights(day);
+
+        if (legCount == 1) {
+            for (int i = 0; i < flights.size(origin); i++) {
+                final int flight = flights.edge(origin, i);
+                if (graph.destination(flight) == destination) {
+                    routes.accept(new int[]{flight});
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < outgoing.size(origin); i++) {
+            final int first = outgoing.edge(origin, i);
+            final int next = graph.destination(first);
+            if (next == origin || next == destination) {
+                continue;
+            }
+            if (graph.isFlight(first)) {
+                if (legCount == 2) {
+                    emitGroundLegs(graph, outgoing, next, destination, routes, first);
+                }
+                continue;
+            }
+            for (int j = 0; j < flights.size(next); j++) {
+                final int flight = flights.edge(next, j);
+                final int landing = graph.destination(flight);
+                if (legCount == 2 && landing == destination) {
+                    routes.accept(new int[]{first, flight});
+                } else if (legCount == 3 && landing != origin && landing != next && landing != destination) {
+                    emitGroundLegs(graph, outgoing, landing, destination, routes, first, flight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Emits {@code legs} followed by each ground transportation from {@code from} to {@code destination}.
+     */
+    private void emitGroundLegs(TransitGraph graph,
+                                TransitGraph.Adjacency outgoing,
+                                int from,
+                                int destination,
+                                Consumer<int[]> routes,
+                                int... legs) {
+        for (int k = 0; k < outgoing.size(from); k++) {
+            final int ground = outgoing.edge(from, k);
+            if (!graph.isFlight(ground) && graph.destination(ground) == destination) {
+                final int[] route = new int[legs.length + 1];
+                System.arraycopy(legs, 0, route, 0, legs.length);
+                route[legs.length] = ground;
+                routes.accept(route);
+            }
+        }
+    }
+
+    private static int compareIds(TransitGraph graph, int[] left, int[] right) {
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            final int compared = Long.compare(graph.transportationId(left[i]), graph.transportationId(right[i]));
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(left.length, right.length);
+    }
+
+    private record RankedRoute(int[] legs, int penalty) {
+    }
+}
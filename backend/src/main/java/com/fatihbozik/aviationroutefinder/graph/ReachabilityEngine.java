@@ -0,0 +1,83 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.springframework.stereotype.Component;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Single-source variant of {@link RouteEngine}: enumerates the valid routes from one origin to every location in one
+ * pass.
+ * <p>
+ * Valid routes follow the same rules as {@link RouteEngine}, so they are walked in their four shapes: flight, flight ×
+ * ground, ground × flight and ground × flight × ground. A route to a location never passes through that location, and
+ * the routes to each destination are emitted in the same order as {@link RouteEngine#findRoutes}.
+ * <p>
+ * The shape walk covers {@link RouteRules#DEFAULT}; any other rules are searched by {@link DepthFirstRouteEngine}.
+ */
+@Component
+public class ReachabilityEngine {
+    private final DepthFirstRouteEngine generic;
+
+    public ReachabilityEngine(RouteRules rules) {
+        this.generic = rules.isDefault() ? null : new DepthFirstRouteEngine(rules);
+    }
+
+    /**
+     * Emits every valid route leaving {@code origin} on {@code day}.
+     *
+     * @param routes receives each route as the transportation indexes of its legs, together with the location it ends
+     *               at; every array is a fresh copy
+     */
+    public void findRoutes(TransitGraph graph, int origin, int day, ObjIntConsumer<int[]> routes) {
+        if (generic != null) {
+            generic.findRoutesFrom(graph, origin, day, routes);
+            return;
+        }
+        final TransitGraph.Adjacency outgoing = graph.outgoing(day);
+        final TransitGraph.Adjacency flights = graph.flights(day);
+
+        for (int i = 0; i < outgoing.size(origin); i++) {
+            final int first = outgoing.edge(origin, i);
+            final int next = graph.destination(first);
+            if (next == origin) {
+                continue;
+            }
+            if (graph.isFlight(first)) {
+                routes.accept(new int[]{first}, next);
+                emitGroundLegs(graph, outgoing, next, origin, next, routes, first);
+            } else {
+                for (int j = 0; j < flights.size(next); j++) {
+                    final int flight = flights.edge(next, j);
+                    final int landing = graph.destination(flight);
+                    if (landing != origin && landing != next) {
+                        routes.accept(new int[]{first, flight}, landing);
+                        emitGroundLegs(graph, outgoing, landing, origin, next, routes, first, flight);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Emits {@code legs} followed by each ground transportation leaving {@code from} for a location not visited yet.
+     */
+    private void emitGroundLegs(TransitGraph graph,
+                                TransitGraph.Adjacency outgoing,
+                                int from,
+                                int origin,
+                                int via,
+                                ObjIntConsumer<int[]> routes,
+                                int... legs) {
+        for (int k = 0; k < outgoing.size(from); k++) {
+            final int ground = outgoing.edge(from, k);
+            final int destination = graph.destination(ground);
+            if (graph.isFlight(ground) || destination == origin || destination == via || destination == from) {
+                continue;
+            }
+            final int[] route = new int[legs.length + 1];
+            System.arraycopy(legs, 0, route, 0, legs.length);
+            route[legs.length] = ground;
+            routes.accept(route, destination);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-weekday bit matrix of the (origin, destination) pairs that may have a valid route, so searches for impossible
+ * pairs can be answered without walking the graph.
+ * <p>
+ * The matrix is computed for each published graph version in the background. Bit sets of origins are pushed along
+ * every transportation operating on the day, once per {@link RouteRules} state in topological order, which costs
+ * {@code states × transportations × locations / 64} word operations per day. Walks may visit a location twice, so the
+ * matrix can only err on the side of a route: a cleared bit guarantees that there is none.
+ * <p>
+ * The matrix takes {@code locations² / 8} bytes per weekday. Schedules with more than {@code max-locations}
+ * locations are not filtered, and until the matrix of the searched version is complete every pair may have a route.
+ */
+@Slf4j
+@Component
+public class ReachabilityFilter {
+    private final RouteRules rules;
+    private final int maxLocations;
+    private final int[] stateOrder;
+    private final ExecutorService worker;
+
+    private final AtomicReference<Matrix> matrix = new AtomicReference<>();
+    private final AtomicLong latestVersion = new AtomicLong(-1);
+
+    public ReachabilityFilter(RouteRules rules,
+                              @Value("${aviation.routes.reachability-filter.max-locations:5000}") int maxLocations) {
+        this.rules = rules;
+        this.maxLocations = maxLocations;
+        this.stateOrder = topologicalOrder(rules);
+        this.worker = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("reachability-filter").daemon().factory());
+    }
+
+    /**
+     * @return {@code false} only if there is certainly no valid route from {@code origin} to {@code destination} on
+     * {@code day}
+     */
+    public boolean mayHaveRoute(TransitGraph graph, int origin, int destination, int day) {
+        if (origin == destination || !OperatingDays.isValid(day)) {
+            return false;
+        }
+        final Matrix current = matrix.get();
+        return current == null || current.version() != graph.version() || current.contains(origin, destination, day);
+    }
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        rebuild(event.graph());
+    }
+
+    /**
+     * Starts computing the matrix of {@code graph}.
+     *
+     * @return completes once the matrix is published, or skipped because the graph is too large or a newer version
+     * arrived
+     */
+    CompletableFuture<Void> rebuild(TransitGraph graph) {
+        latestVersion.set(graph.version());
+        if (graph.locationCount() > maxLocations) {
+            matrix.set(null);
+            LOG.debug("Graph version {} has too many locations for a reachability filter", graph.version());
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            final Matrix next = compute(graph);
+            if (next != null) {
+                matrix.set(next);
+                LOG.debug("Reachability filter of graph version {} is ready", graph.version());
+            }
+        }, worker).exceptionally(ex -> {
+            LOG.warn("Could not compute the reachability filter of graph version {}", graph.version(), ex);
+            return null;
+        });
+    }
+
+    private boolean isSuperseded(TransitGraph graph) {
+        return latestVersion.get() != graph.version();
+    }
+
+    /**
+     * @return the matrix of {@code graph}, or {@code null} if a newer version arrived meanwhile
+     */
+    private Matrix compute(TransitGraph graph) {
+        final int locationCount = graph.locationCount();
+        final int words = (locationCount + Long.SIZE - 1) / Long.SIZE;
+        final long[][] days = new long[OperatingDays.DAYS_PER_WEEK][];
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            if (isSuperseded(graph)) {
+                return null;
+            }
+            days[day - 1] = computeDay(graph, graph.outgoing(day), locationCount, words);
+        }
+        return new Matrix(graph.version(), words, days);
+    }
+
+    /**
+     * @return for every destination, the bit set of origins that may reach it
+     */
+    private long[] computeDay(TransitGraph graph, TransitGraph.Adjacency outgoing, int locationCount, int words) {
+        // origins[state][location * words ..] holds the origins that can be at location in state
+        final long[][] origins = new long[rules.stateCount()][];
+        final long[] start = new long[locationCount * words];
+        for (int location = 0; location < locationCount; location++) {
+            start[location * words + location / Long.SIZE] |= 1L << location;
+        }
+        origins[rules.start()] = start;
+
+        final long[] result = new long[locationCount * words];
+        for (int state : stateOrder) {
+            final long[] from = origins[state];
+            if (from == null) {
+                continue;
+            }
+            if (rules.accepts(state)) {
+                or(from, 0, result, 0, from.length);
+            }
+            for (int location = 0; location < locationCount; location++) {
+                final int offset = location * words;
+                if (isEmpty(from, offset, words)) {
+                    continue;
+                }
+                for (int k = 0; k < outgoing.size(location); k++) {
+                    final int transportation = outgoing.edge(location, k);
+                    final int next = rules.next(state, graph.type(transportation));
+                    if (next == RouteRules.REJECT) {
+                        continue;
+                    }
+                    if (origins[next] == null) {
+                        origins[next] = new long[locationCount * words];
+                    }
+                    or(from, offset, origins[next], graph.destination(transportation) * words, words);
+                }
+            }
+            // Every transition out of this state has been followed
+            origins[state] = null;
+        }
+        return result;
+    }
+
+    private static boolean isEmpty(long[] bits, int offset, int words) {
+        for (int i = offset; i < offset + words; i++) {
+            if (bits[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void or(long[] source, int sourceOffset, long[] target, int targetOffset, int words) {
+        for (int i = 0; i < words; i++) {
+            target[targetOffset + i] |= source[sourceOffset + i];
+        }
+    }
+
+    /**
+     * @return the states reachable from the start, each before every state it leads to; rules allow only finitely long
+     * routes, so the automaton has no cycles
+     */
+    private static int[] topologicalOrder(RouteRules rules) {
+        final boolean[] visited = new boolean[rules.stateCount()];
+        final List<Integer> postOrder = new ArrayList<>();
+        visit(rules, rules.start(), visited, postOrder);
+        final int[] order = new int[postOrder.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = postOrder.get(order.length - 1 - i);
+        }
+        return order;
+    }
+
+    private static void visit(RouteRules rules, int state, boolean[] visited, List<Integer> postOrder) {
+        visited[state] = true;
+        for (TransportationType type : TransportationType.values()) {
+            final int next = rules.next(state, type);
+            if (next != RouteRules.REJECT && !visited[next]) {
+                visit(rules, next, visited, postOrder);
+            }
+        }
+        postOrder.add(state);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private record Matrix(long version, int words, long[][] days) {
+
+        boolean contains(int origin, int destination, int day) {
+            final long[] bits = days[day - 1];
+            final int index = destination * words + origin / Long.SIZE;
+            return index < bits.length && (bits[index] & (1L << origin)) != 0;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.function.Consumer;
+
+/**
+ * Enumerates the valid routes between two locations of a {@link TransitGraph}.
+ * <p>
+ * A valid route matches the configured {@link RouteRules} (by default exactly one flight, at most one ground
+ * transportation before it and at most one after it), uses only transportations operating on the requested day and
+ * never visits a location twice.
+ */
+public interface RouteEngine {
+
+    /**
+     * Emits every valid route from {@code origin} to {@code destination} on {@code day}, in depth-first discovery
+     * order over the schedule.
+     *
+     * @param routes receives each route as the transportation indexes of its legs; every array is a fresh copy
+     */
+    void findRoutes(TransitGraph graph, int origin, int destination, int day, Consumer<int[]> routes);
+}
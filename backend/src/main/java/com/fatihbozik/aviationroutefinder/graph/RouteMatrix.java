@@ -0,0 +1,105 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Every valid route between every pair of locations of one {@link TransitGraph} version, for each weekday.
+ * <p>
+ * Routes are stored as transportation indexes of that version. Each (day, origin) row lists its reachable destinations
+ * in ascending order and the legs of all its routes in one flat array, so a lookup is a binary search followed by a
+ * copy of the legs. Rows are filled concurrently while the matrix is built and must not be read before it is published.
+ */
+final class RouteMatrix {
+    private final long version;
+    private final int locationCount;
+    private final Row[] rows;
+
+    RouteMatrix(long version, int locationCount) {
+        this.version = version;
+        this.locationCount = locationCount;
+        this.rows = new Row[OperatingDays.DAYS_PER_WEEK * locationCount];
+    }
+
+    long version() {
+        return version;
+    }
+
+    /**
+     * Fills the rows of {@code origin} for every weekday.
+     */
+    void computeRows(TransitGraph graph, ReachabilityEngine reachabilityEngine, int origin) {
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            final Map<Integer, List<int[]>> routesByDestination = new TreeMap<>();
+            reachabilityEngine.findRoutes(graph, origin, day, (legs, destination) ->
+                    routesByDestination.computeIfAbsent(destination, key -> new ArrayList<>()).add(legs));
+            if (!routesByDestination.isEmpty()) {
+                rows[rowIndex(origin, day)] = Row.of(routesByDestination);
+            }
+        }
+    }
+
+    /**
+     * Emits the stored routes from {@code origin} to {@code destination} on {@code day}, in the order they were found.
+     */
+    void findRoutes(int origin, int destination, int day, Consumer<int[]> routes) {
+        if (!OperatingDays.isValid(day) || origin >= locationCount) {
+            return;
+        }
+        final Row row = rows[rowIndex(origin, day)];
+        if (row == null) {
+            return;
+        }
+        final int i = Arrays.binarySearch(row.destinations, destination);
+        if (i < 0) {
+            return;
+        }
+        for (int route = row.routeOffsets[i]; route < row.routeOffsets[i + 1]; route++) {
+            routes.accept(Arrays.copyOfRange(row.legs, row.legOffsets[route], row.legOffsets[route + 1]));
+        }
+    }
+
+    private int rowIndex(int origin, int day) {
+        return (day - 1) * locationCount + origin;
+    }
+
+    /**
+     * Routes of one (day, origin) pair: the routes to {@code destinations[i]} are {@code routeOffsets[i]} up to
+     * {@code routeOffsets[i + 1]}, and the legs of route {@code r} are {@code legOffsets[r]} up to
+     * {@code legOffsets[r + 1]}.
+     */
+    private record Row(int[] destinations, int[] routeOffsets, int[] legOffsets, int[] legs) {
+
+        static Row of(Map<Integer, List<int[]>> routesByDestination) {
+            final int[] destinations = new int[routesByDestination.size()];
+            final int[] routeOffsets = new int[destinations.length + 1];
+            int routeCount = 0;
+            int legCount = 0;
+            int i = 0;
+            for (Map.Entry<Integer, List<int[]>> entry : routesByDestination.entrySet()) {
+                destinations[i++] = entry.getKey();
+                routeCount += entry.getValue().size();
+                routeOffsets[i] = routeCount;
+                for (int[] route : entry.getValue()) {
+                    legCount += route.length;
+                }
+            }
+
+            final int[] legOffsets = new int[routeCount + 1];
+            final int[] legs = new int[legCount];
+            int route = 0;
+            for (List<int[]> routes : routesByDestination.values()) {
+                for (int[] legsOfRoute : routes) {
+                    System.arraycopy(legsOfRoute, 0, legs, legOffsets[route], legsOfRoute.length);
+                    legOffsets[route + 1] = legOffsets[route] + legsOfRoute.length;
+                    route++;
+                }
+            }
+            return new Row(destinations, routeOffsets, legOffsets, legs);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+/**
+ * Orders routes for {@link RankedRouteSearch}: by penalty first, then by number of legs, then by the ids of their
+ * transportations. Penalties are never negative.
+ */
+@FunctionalInterface
+public interface RouteRanking {
+
+    int penalty(TransitGraph graph, int[] legs);
+
+    /**
+     * Fewest legs first. A route has one transfer fewer than legs under any route rules, so this is also fewest
+     * transfers first.
+     */
+    static RouteRanking fewestLegs() {
+        return (graph, legs) -> 0;
+    }
+
+    /**
+     * Fewest legs of another type than {@code preferredType} first.
+     */
+    static RouteRanking preferredType(TransportationType preferredType) {
+        return (graph, legs) -> {
+            int penalty = 0;
+            for (int leg : legs) {
+                if (graph.type(leg) != preferredType) {
+                    penalty++;
+                }
+            }
+            return penalty;
+        };
+    }
+}
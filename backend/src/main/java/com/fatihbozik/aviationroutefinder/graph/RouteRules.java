@@ -0,0 +1,277 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which sequences of transportation types form a valid route, as a deterministic finite automaton.
+ * <p>
+ * Rules are written as whitespace separated segments that must match in order. A segment is a type class followed by
+ * an optional quantifier:
+ * <ul>
+ *     <li>type classes: {@code FLIGHT}, {@code BUS}, {@code SUBWAY}, {@code UBER}, {@code GROUND} (anything but a
+ *     flight), {@code ANY}, or several of them joined with {@code |}</li>
+ *     <li>quantifiers: none (exactly once), {@code ?} (at most once), {@code {n}} or {@code {min,max}}</li>
+ * </ul>
+ * {@link #DEFAULT} is {@code GROUND? FLIGHT GROUND?}: at most one ground transportation before and after exactly one
+ * flight. Every segment has a finite maximum, so no valid route is longer than {@link #maxLegs()}.
+ * <p>
+ * Searches step the automaton on every leg they take. A leg that leads to {@link #REJECT} can be dropped right away:
+ * every other state can still reach an accepting one.
+ */
+public final class RouteRules {
+    private static final TransportationType[] TYPES = TransportationType.values();
+    private static final int MAX_POSITIONS = Long.SIZE;
+
+    public static final int REJECT = -1;
+    public static final RouteRules DEFAULT = parse("GROUND? FLIGHT GROUND?");
+
+    private final String expression;
+    private final int[][] transitions;
+    private final boolean[] accepting;
+    private final int maxLegs;
+
+    private RouteRules(String expression, int[][] transitions, boolean[] accepting, int maxLegs) {
+        this.expression = expression;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.maxLegs = maxLegs;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code expression} is not a valid rule expression
+     */
+    public static RouteRules parse(String expression) {
+        final List<Segment> segments = new ArrayList<>();
+        for (String token : expression.trim().split("\\s+")) {
+            if (!token.isEmpty()) {
+                segments.add(Segment.parse(token));
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Route rules must not be empty");
+        }
+        return compile(expression.trim(), segments);
+    }
+
+    public int start() {
+        return 0;
+    }
+
+    /**
+     * @return the state after taking a leg of {@code type} in {@code state}, or {@link #REJECT}
+     */
+    public int next(int state, TransportationType type) {
+        return transitions[state][type.ordinal()];
+    }
+
+    public boolean accepts(int state) {
+        return accepting[state];
+    }
+
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    /**
+     * @return the accepting states as a bit mask; only meaningful when {@link #stateCount()} is at most 64
+     */
+    public long acceptingStates() {
+        long states = 0;
+        for (int state = 0; state < accepting.length; state++) {
+            if (accepting[state]) {
+                states |= 1L << state;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Steps the automaton backwards, for searches that grow routes from their destination.
+     *
+     * @param states bit mask of the states a leg of {@code type} must lead to; only meaningful when
+     *               {@link #stateCount()} is at most 64
+     * @return bit mask of the states from which a leg of {@code type} leads into {@code states}
+     */
+    public long previous(long states, TransportationType type) {
+        long result = 0;
+        for (int state = 0; state < transitions.length; state++) {
+            final int next = transitions[state][type.ordinal()];
+            if (next != REJECT && (states & (1L << next)) != 0) {
+                result |= 1L << state;
+            }
+        }
+        return result;
+    }
+
+    public int maxLegs() {
+        return maxLegs;
+    }
+
+    public boolean isDefault() {
+        return equals(DEFAULT);
+    }
+
+    /**
+     * Rules are equal when their automata are, so rule sets that differ only in spelling compare equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RouteRules rules
+               && Arrays.deepEquals(transitions, rules.transitions)
+               && Arrays.equals(accepting, rules.accepting);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.deepHashCode(transitions) + Arrays.hashCode(accepting);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Subset construction over the positions (segment, legs matched in it) of the segment chain. Position sets are
+     * bit masks, which bounds a rule expression to 64 positions.
+     */
+    private static RouteRules compile(String expression, List<Segment> segments) {
+        final int[] firstPosition = new int[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            firstPosition[i + 1] = firstPosition[i] + segments.get(i).max() + 1;
+        }
+        final int finalPosition = firstPosition[segments.size()];
+        if (finalPosition >= MAX_POSITIONS) {
+            throw new IllegalArgumentException("Route rules are too long: " + expression);
+        }
+
+        final Map<Long, Integer> states = new HashMap<>();
+        final List<Long> positionSets = new ArrayList<>();
+        final List<int[]> transitions = new ArrayList<>();
+        final Deque<Integer> pending = new ArrayDeque<>();
+
+        final long start = closure(segments, firstPosition, 1L);
+        states.put(start, 0);
+        positionSets.add(start);
+        pending.add(0);
+        while (!pending.isEmpty()) {
+            final int state = pending.poll();
+            final long positions = positionSets.get(state);
+            final int[] row = new int[TYPES.length];
+            for (TransportationType type : TYPES) {
+                final long next = closure(segments, firstPosition, step(segments, firstPosition, positions, type));
+                if (next == 0) {
+                    row[type.ordinal()] = REJECT;
+                    continue;
+                }
+                Integer target = states.get(next);
+                if (target == null) {
+                    target = positionSets.size();
+                    states.put(next, target);
+                    positionSets.add(next);
+                    pending.add(target);
+                }
+                row[type.ordinal()] = target;
+            }
+            // States are numbered in the order they are queued, so rows are added in state order
+            transitions.add(row);
+        }
+
+        final boolean[] accepting = new boolean[positionSets.size()];
+        for (int state = 0; state < accepting.length; state++) {
+            accepting[state] = (positionSets.get(state) & (1L << finalPosition)) != 0;
+        }
+        final int maxLegs = segments.stream().mapToInt(Segment::max).sum();
+        return new RouteRules(expression, transitions.toArray(int[][]::new), accepting, maxLegs);
+    }
+
+    /**
+     * Adds every position reachable by skipping segments whose minimum is already met.
+     */
+    private static long closure(List<Segment> segments, int[] firstPosition, long positions) {
+        long result = positions;
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            for (int count = segment.min(); count <= segment.max(); count++) {
+                if ((result & (1L << (firstPosition[i] + count))) != 0) {
+                    result |= 1L << firstPosition[i + 1];
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long step(List<Segment> segments, int[] firstPosition, long positions, TransportationType type) {
+        long result = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            if (!segment.matches(type)) {
+                continue;
+            }
+            for (int count = 0; count < segment.max(); count++) {
+                if ((positions & (1L << (firstPosition[i] + count))) != 0) {
+                    result |= 1L << (firstPosition[i] + count + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    private record Segment(int types, int min, int max) {
+
+        static Segment parse(String token) {
+            int end = token.length();
+            int min = 1;
+            int max = 1;
+            if (token.endsWith("?")) {
+                min = 0;
+                end--;
+            } else if (token.endsWith("}") && token.indexOf('{') > 0) {
+                end = token.indexOf('{');
+                final String[] bounds = token.substring(end + 1, token.length() - 1).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0].trim());
+                    max = bounds.length == 1 ? min : Integer.parseInt(bounds[1].trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid quantifier in route rule segment: " + token, ex);
+                }
+                if (bounds.length > 2 || min < 0 || max < min || max == 0) {
+                    throw new IllegalArgumentException("Invalid quantifier in route rule segment: " + token);
+                }
+            }
+
+            int types = 0;
+            for (String name : token.substring(0, end).split("\\|")) {
+                types |= typesOf(name, token);
+            }
+            return new Segment(types, min, max);
+        }
+
+        private static int typesOf(String name, String token) {
+            return switch (name) {
+                case "ANY" -> (1 << TYPES.length) - 1;
+                case "GROUND" -> ((1 << TYPES.length) - 1) & ~(1 << TransportationType.FLIGHT.ordinal());
+                default -> {
+                    try {
+                        yield 1 << TransportationType.valueOf(name).ordinal();
+                    } catch (IllegalArgumentException ex) {
+                        throw new IllegalArgumentException("Unknown transportation type in route rule segment: " + token, ex);
+                    }
+                }
+            };
+        }
+
+        boolean matches(TransportationType type) {
+            return (types & (1 << type.ordinal())) != 0;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the transit graphs of all instances sharing a Redis in step.
+ * <p>
+ * Committed schedule changes are numbered with a Redis counter and announced on {@link #CHANNEL}. Other instances
+ * apply them to their own {@link TransitGraphHolder}, which publishes the new version locally just like for a change
+ * made there. Redis pub/sub does not redeliver lost messages: every {@code aviation.routes.schedule-sync.poll-interval}
+ * the counter is compared with the changes seen so far, and an instance still missing a change at the next poll
+ * rebuilds its graph from the database.
+ */
+@Slf4j
+@Component
+public class ScheduleChangeRelay {
+    public static final String CHANNEL = "aviation:schedule-changes";
+    static final String SEQUENCE_KEY = "aviation:schedule-sequence";
+
+    private final TransitGraphHolder transitGraphHolder;
+    private final StringRedisTemplate redisTemplate;
+    private final Duration pollInterval;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService poller;
+
+    // Every change up to the watermark has been seen; later ones seen out of order wait in pending. Guarded by this
+    private long watermark = -1;
+    private final NavigableSet<Long> pending = new TreeSet<>();
+    private long latestAtLastPoll = -1;
+
+    public ScheduleChangeRelay(TransitGraphHolder transitGraphHolder,
+                               StringRedisTemplate redisTemplate,
+                               @Value("${aviation.routes.schedule-sync.poll-interval:30s}") Duration pollInterval) {
+        this.transitGraphHolder = transitGraphHolder;
+        this.redisTemplate = redisTemplate;
+        this.pollInterval = pollInterval;
+        this.poller = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("schedule-sync").daemon().factory());
+    }
+
+    /**
+     * Starts polling right away, so the counter is read before the first graph is compiled.
+     */
+    @PostConstruct
+    public void start() {
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        try {
+            final Long sequence = redisTemplate.opsForValue().increment(SEQUENCE_KEY);
+            if (sequence == null) {
+                return;
+            }
+            redisTemplate.convertAndSend(CHANNEL, new Announcement(instanceId, sequence, event).toMessage());
+            seen(sequence);
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not announce {} to other instances", event, ex);
+        }
+    }
+
+    /**
+     * Applies a change announced by another instance.
+     */
+    public void onMessage(String message) {
+        final Announcement announcement = Announcement.parse(message);
+        if (announcement == null || announcement.instanceId().equals(instanceId)) {
+            return;
+        }
+        // Applying a change reads the entity back, so a change applied twice or late does no harm
+        transitGraphHolder.onScheduleChanged(announcement.change());
+        seen(announcement.sequence());
+    }
+
+    synchronized void seen(long sequence) {
+        if (watermark < 0 || sequence <= watermark) {
+            return;
+        }
+        pending.add(sequence);
+        while (pending.remove(watermark + 1)) {
+            watermark++;
+        }
+    }
+
+    void poll() {
+        try {
+            final String value = redisTemplate.opsForValue().get(SEQUENCE_KEY);
+            final long latest = value == null ? 0 : Long.parseLong(value);
+            if (isMissingChanges(latest)) {
+                LOG.warn("Missed schedule change announcements up to {}, rebuilding the transit graph", latest);
+                transitGraphHolder.refresh();
+                synchronized (this) {
+                    watermark = Math.max(watermark, latest);
+                    pending.headSet(watermark, true).clear();
+                    while (pending.remove(watermark + 1)) {
+                        watermark++;
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not check for missed schedule changes", ex);
+        }
+    }
+
+    /**
+     * @param latest the current value of the counter
+     * @return whether a change the counter already included at the previous poll has still not been seen
+     */
+    private synchronized boolean isMissingChanges(long latest) {
+        if (watermark < 0 || latest < watermark) {
+            // First poll, or the counter was reset
+            watermark = latest;
+            pending.clear();
+            latestAtLastPoll = latest;
+            return false;
+        }
+        final boolean missing = watermark < latestAtLastPoll;
+        latestAtLastPoll = latest;
+        return missing;
+    }
+
+    /**
+     * Messages are the instance id, the sequence number, the subject and the id of the change, separated by line feeds.
+     */
+    record Announcement(String instanceId, long sequence, ScheduleChangedEvent change) {
+
+        String toMessage() {
+            return instanceId + '\n' + sequence + '\n' + change.subject() + '\n' + change.id();
+        }
+
+        static Announcement parse(String message) {
+            final String[] parts = message.split("\n");
+            if (parts.length != 4) {
+                return null;
+            }
+            try {
+                return new Announcement(parts[0], Long.parseLong(parts[1]), new ScheduleChangedEvent(
+                        ScheduleChangedEvent.Subject.valueOf(parts[2]), Long.parseLong(parts[3])));
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+}
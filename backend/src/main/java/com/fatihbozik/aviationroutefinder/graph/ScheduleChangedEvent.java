@@ -0,0 +1,23 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+/**
+ * Published by the location and transportation services whenever a location or transportation the route graph is
+ * compiled from is created, updated or deleted.
+ *
+ * @param subject kind of the changed entity
+ * @param id      id of the changed entity
+ */
+public record ScheduleChangedEvent(Subject subject, Long id) {
+
+    public static ScheduleChangedEvent location(Long id) {
+        return new ScheduleChangedEvent(Subject.LOCATION, id);
+    }
+
+    public static ScheduleChangedEvent transportation(Long id) {
+        return new ScheduleChangedEvent(Subject.TRANSPORTATION, id);
+    }
+
+    public enum Subject {
+        LOCATION, TRANSPORTATION
+    }
+}
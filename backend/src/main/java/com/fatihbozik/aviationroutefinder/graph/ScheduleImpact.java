@@ -0,0 +1,235 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The searches whose answer a schedule change may have altered, as a union of {@link Area areas}.
+ * <p>
+ * A changed transportation can only alter routes that take it, before or after the change: routes from an origin that
+ * can reach its departure location in a state that may continue with a leg of its type, to a destination that can be
+ * reached from its arrival location in the state that leg leads to. A changed location likewise alters the routes
+ * passing through it and, if its code changes or it disappears, every search naming its former code. Both sides are
+ * found by walking the {@link RouteRules} automaton backwards and forwards over the transportations operating on the
+ * affected days; walks may revisit locations, so areas can be larger than necessary but never miss a search.
+ */
+public final class ScheduleImpact {
+    private static final ScheduleImpact NONE = new ScheduleImpact(List.of());
+    private static final ScheduleImpact EVERYTHING = new ScheduleImpact(null);
+
+    private final List<Area> areas;
+
+    private ScheduleImpact(List<Area> areas) {
+        this.areas = areas;
+    }
+
+    public static ScheduleImpact none() {
+        return NONE;
+    }
+
+    public static ScheduleImpact everything() {
+        return EVERYTHING;
+    }
+
+    /**
+     * @param change the change that turned {@code previous} into {@code graph}, or {@code null} if {@code graph} was
+     *               compiled from scratch
+     */
+    public static ScheduleImpact of(RouteRules rules, TransitGraph previous, TransitGraph graph, ScheduleChangedEvent change) {
+        if (change == null || rules.stateCount() > Long.SIZE) {
+            return EVERYTHING;
+        }
+        final List<Area> areas = new ArrayList<>();
+        switch (change.subject()) {
+            case LOCATION -> {
+                final int before = findLocation(previous, change.id());
+                final int after = findLocation(graph, change.id());
+                if (before >= 0) {
+                    areas.add(around(rules, previous, before));
+                    if (after < 0 || !graph.locationCode(after).equals(previous.locationCode(before))) {
+                        final Set<String> formerCode = Set.of(previous.locationCode(before));
+                        areas.add(new Area(formerCode, null, OperatingDays.ALL_DAYS));
+                        areas.add(new Area(null, formerCode, OperatingDays.ALL_DAYS));
+                    }
+                }
+                if (after >= 0) {
+                    areas.add(around(rules, graph, after));
+                }
+            }
+            case TRANSPORTATION -> {
+                final int before = findTransportation(previous, change.id());
+                final int after = findTransportation(graph, change.id());
+                if (before >= 0) {
+                    areas.add(along(rules, previous, before));
+                }
+                if (after >= 0) {
+                    areas.add(along(rules, graph, after));
+                }
+            }
+        }
+        return new ScheduleImpact(List.copyOf(areas));
+    }
+
+    /**
+     * @return whether every search may be affected; {@link #areas()} is empty then
+     */
+    public boolean isEverything() {
+        return areas == null;
+    }
+
+    public List<Area> areas() {
+        return areas == null ? List.of() : areas;
+    }
+
+    public boolean affects(String originCode, String destinationCode, int day) {
+        if (areas == null) {
+            return true;
+        }
+        for (Area area : areas) {
+            if (area.contains(originCode, destinationCode, day)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Routes through the location at {@code location}, in any state.
+     */
+    private static Area around(RouteRules rules, TransitGraph graph, int location) {
+        final long allStates = rules.stateCount() == Long.SIZE ? -1L : (1L << rules.stateCount()) - 1;
+        return area(rules, graph, location, allStates, location, allStates, OperatingDays.ALL_DAYS);
+    }
+
+    /**
+     * Routes taking the transportation at {@code transportation}.
+     */
+    private static Area along(RouteRules rules, TransitGraph graph, int transportation) {
+        final TransportationType type = graph.type(transportation);
+        long before = 0;
+        for (int state = 0; state < rules.stateCount(); state++) {
+            if (rules.next(state, type) != RouteRules.REJECT) {
+                before |= 1L << state;
+            }
+        }
+        return area(rules, graph, graph.origin(transportation), before,
+                graph.destination(transportation), step(rules, before, type), graph.operatingDays(transportation));
+    }
+
+    private static Area area(RouteRules rules,
+                             TransitGraph graph,
+                             int departure,
+                             long statesAtDeparture,
+                             int arrival,
+                             long statesAtArrival,
+                             int days) {
+        final Set<String> origins = new HashSet<>();
+        final Set<String> destinations = new HashSet<>();
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            if (!OperatingDays.contains(days, day)) {
+                continue;
+            }
+            final long[] backward = walk(rules, graph, graph.arrivals(day), departure, statesAtDeparture, false);
+            final long[] forward = walk(rules, graph, graph.outgoing(day), arrival, statesAtArrival, true);
+            for (int location = 0; location < graph.locationCount(); location++) {
+                if (graph.isRemoved(location)) {
+                    continue;
+                }
+                if ((backward[location] & (1L << rules.start())) != 0) {
+                    origins.add(graph.locationCode(location));
+                }
+                if ((forward[location] & rules.acceptingStates()) != 0) {
+                    destinations.add(graph.locationCode(location));
+                }
+            }
+        }
+        return new Area(origins, destinations, days);
+    }
+
+    /**
+     * @param forward whether to follow {@code adjacency} from origins to destinations, or the other way round
+     * @return for every location, the states a route can be in there and still reach {@code location} in one of
+     * {@code states} (backward), or after leaving {@code location} in one of {@code states} (forward)
+     */
+    private static long[] walk(RouteRules rules,
+                               TransitGraph graph,
+                               TransitGraph.Adjacency adjacency,
+                               int location,
+                               long states,
+                               boolean forward) {
+        final long[] reached = new long[graph.locationCount()];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        reached[location] = states;
+        queue.add(location);
+        while (!queue.isEmpty()) {
+            final int current = queue.poll();
+            for (int k = 0; k < adjacency.size(current); k++) {
+                final int transportation = adjacency.edge(current, k);
+                final TransportationType type = graph.type(transportation);
+                final int neighbour = forward ? graph.destination(transportation) : graph.origin(transportation);
+                final long added = (forward ? step(rules, reached[current], type) : rules.previous(reached[current], type))
+                                   & ~reached[neighbour];
+                if (added != 0) {
+                    reached[neighbour] |= added;
+                    queue.add(neighbour);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private static long step(RouteRules rules, long states, TransportationType type) {
+        long result = 0;
+        for (int state = 0; state < rules.stateCount(); state++) {
+            if ((states & (1L << state)) != 0) {
+                final int next = rules.next(state, type);
+                if (next != RouteRules.REJECT) {
+                    result |= 1L << next;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int findLocation(TransitGraph graph, long id) {
+        for (int location = 0; location < graph.locationCount(); location++) {
+            if (!graph.isRemoved(location) && graph.locationId(location) == id) {
+                return location;
+            }
+        }
+        return -1;
+    }
+
+    private static int findTransportation(TransitGraph graph, long id) {
+        final TransitGraph.Adjacency outgoing = graph.outgoing();
+        for (int location = 0; location < graph.locationCount(); location++) {
+            for (int k = 0; k < outgoing.size(location); k++) {
+                if (graph.transportationId(outgoing.edge(location, k)) == id) {
+                    return outgoing.edge(location, k);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Searches from any of {@code origins} to any of {@code destinations} on any of {@code days}.
+     *
+     * @param origins      location codes, or {@code null} for every origin
+     * @param destinations location codes, or {@code null} for every destination
+     * @param days         bit mask of weekdays, see {@link OperatingDays}
+     */
+    public record Area(Set<String> origins, Set<String> destinations, int days) {
+
+        public boolean contains(String originCode, String destinationCode, int day) {
+            return OperatingDays.contains(days, day)
+                   && (origins == null || origins.contains(originCode))
+                   && (destinations == null || destinations.contains(destinationCode));
+        }
+    }
+}
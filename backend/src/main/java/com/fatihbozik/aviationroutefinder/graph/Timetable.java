@@ -0,0 +1,142 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import java.util.Arrays;
+
+/**
+ * The timed transportations of one graph version as connection arrays sorted by departure, one set per weekday, as
+ * scanned by {@link ConnectionScanEngine}.
+ * <p>
+ * Transportations without a timetable are kept apart, grouped by origin in schedule order.
+ */
+final class Timetable {
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final Day[] days;
+
+    private Timetable(Day[] days) {
+        this.days = days;
+    }
+
+    static Timetable build(TransitGraph graph) {
+        final Day[] days = new Day[OperatingDays.DAYS_PER_WEEK];
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            days[day - 1] = Day.build(graph, graph.outgoing(day));
+        }
+        return new Timetable(days);
+    }
+
+    /**
+     * @return the arrival time of a timed transportation, past {@link #MINUTES_PER_DAY} when it arrives on the next day
+     */
+    static int arrival(TransitGraph graph, int transportation) {
+        final int arrival = graph.arrival(transportation);
+        return arrival < graph.departure(transportation) ? arrival + MINUTES_PER_DAY : arrival;
+    }
+
+    Day day(int day) {
+        return days[day - 1];
+    }
+
+    static final class Day {
+        private final int[] departures;
+        private final int[] arrivals;
+        private final int[] connections;
+        private final int[] untimedStart;
+        private final int[] untimed;
+
+        private Day(int[] departures, int[] arrivals, int[] connections, int[] untimedStart, int[] untimed) {
+            this.departures = departures;
+            this.arrivals = arrivals;
+            this.connections = connections;
+            this.untimedStart = untimedStart;
+            this.untimed = untimed;
+        }
+
+        private static Day build(TransitGraph graph, TransitGraph.Adjacency outgoing) {
+            final int locationCount = graph.locationCount();
+            int timedCount = 0;
+            int untimedCount = 0;
+            for (int location = 0; location < locationCount; location++) {
+                for (int k = 0; k < outgoing.size(location); k++) {
+                    if (graph.isTimed(outgoing.edge(location, k))) {
+                        timedCount++;
+                    } else {
+                        untimedCount++;
+                    }
+                }
+            }
+
+            // Departure in the high half, transportation in the low half: one primitive sort orders by departure,
+            // then by slot
+            final long[] keys = new long[timedCount];
+            final int[] untimedStart = new int[locationCount + 1];
+            final int[] untimed = new int[untimedCount];
+            int t = 0;
+            int u = 0;
+            for (int location = 0; location < locationCount; location++) {
+                untimedStart[location] = u;
+                for (int k = 0; k < outgoing.size(location); k++) {
+                    final int transportation = outgoing.edge(location, k);
+                    if (graph.isTimed(transportation)) {
+                        keys[t++] = (long) graph.departure(transportation) << Integer.SIZE | transportation;
+                    } else {
+                        untimed[u++] = transportation;
+                    }
+                }
+            }
+            untimedStart[locationCount] = u;
+            Arrays.sort(keys);
+
+            final int[] departures = new int[timedCount];
+            final int[] arrivals = new int[timedCount];
+            final int[] connections = new int[timedCount];
+            for (int i = 0; i < timedCount; i++) {
+                connections[i] = (int) keys[i];
+                departures[i] = (int) (keys[i] >>> Integer.SIZE);
+                arrivals[i] = Timetable.arrival(graph, connections[i]);
+            }
+            return new Day(departures, arrivals, connections, untimedStart, untimed);
+        }
+
+        int size() {
+            return connections.length;
+        }
+
+        int departure(int i) {
+            return departures[i];
+        }
+
+        int arrival(int i) {
+            return arrivals[i];
+        }
+
+        int connection(int i) {
+            return connections[i];
+        }
+
+        /**
+         * @return the index of the first connection departing at or after {@code time}
+         */
+        int firstDepartingAt(int time) {
+            int low = 0;
+            int high = departures.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (departures[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int untimedCount(int location) {
+            return untimedStart[location + 1] - untimedStart[location];
+        }
+
+        int untimed(int location, int k) {
+            return untimed[untimedStart[location] + k];
+        }
+    }
+}
@@ -0,0 +1,714 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, versioned snapshot of the transportation schedule.
+ * <p>
+ * Locations are addressed by dense {@code int} indexes and transportations by the slot they were loaded into.
+ * Transportation type, operating days and times are held in primitive arrays so route searches never touch entities
+ * or boxed values. Times are minutes after midnight, or {@link #NO_TIME}.
+ * <p>
+ * Besides the full outgoing adjacency, the snapshot keeps per-weekday views that hold only the transportations
+ * operating on that day: all outgoing transportations, outgoing flights, all incoming transportations and incoming
+ * ground transportations. Incoming segments are ordered by origin.
+ * <p>
+ * Single location and transportation changes derive a new version that shares everything but the touched adjacency
+ * segments with its predecessor. Transportation slots are append-only: the arrays backing them may be shared with
+ * later versions, which only ever write past this version's {@link #transportationSlots()}. Slots of removed
+ * transportations are left unreferenced until the next full build.
+ */
+public final class TransitGraph {
+    public static final int NO_TIME = -1;
+
+    private static final TransportationType[] TYPES = TransportationType.values();
+    private static final int COMPACTION_THRESHOLD = 1024;
+    private static final TransitGraph EMPTY = build(List.of(), List.of(), entity -> null, 0);
+
+    private final long version;
+
+    private final int locationCount;
+    private final long[] locationIds;
+    private final Location[] locations;
+    private final Map<String, Integer> indexByCode;
+    private final LocationDictionary dictionary;
+
+    private final int transportationSlots;
+    private final int removedTransportations;
+    private final long[] edgeIds;
+    private final int[] edgeOrigin;
+    private final int[] edgeDestination;
+    private final byte[] edgeType;
+    private final byte[] edgeDays;
+    private final short[] edgeDeparture;
+    private final short[] edgeArrival;
+    private final short[] edgeDuration;
+
+    private final Adjacency outgoing;
+    private final Adjacency[] outgoingByDay;
+    private final Adjacency[] flightsByDay;
+    private final Adjacency[] arrivalsByDay;
+    private final Adjacency[] groundArrivalsByDay;
+
+    private TransitGraph(Draft draft) {
+        this.version = draft.version;
+        this.locationCount = draft.locationCount;
+        this.locationIds = draft.locationIds;
+        this.locations = draft.locations;
+        this.indexByCode = draft.indexByCode;
+        this.dictionary = draft.dictionary;
+        this.transportationSlots = draft.transportationSlots;
+        this.removedTransportations = draft.removedTransportations;
+        this.edgeIds = draft.edgeIds;
+        this.edgeOrigin = draft.edgeOrigin;
+        this.edgeDestination = draft.edgeDestination;
+        this.edgeType = draft.edgeType;
+        this.edgeDays = draft.edgeDays;
+        this.edgeDeparture = draft.edgeDeparture;
+        this.edgeArrival = draft.edgeArrival;
+        this.edgeDuration = draft.edgeDuration;
+        this.outgoing = draft.outgoing;
+        this.outgoingByDay = draft.outgoingByDay;
+        this.flightsByDay = draft.flightsByDay;
+        this.arrivalsByDay = draft.arrivalsByDay;
+        this.groundArrivalsByDay = draft.groundArrivalsByDay;
+    }
+
+    public static TransitGraph empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles a snapshot from the given schedule.
+     *
+     * @param locations       all known locations, including those without any transportation
+     * @param transportations all transportations, in the order route searches should visit them
+     * @param toDomain        converts a location to the value returned in routes
+     * @param version         version number of the new snapshot
+     */
+    public static TransitGraph build(Collection<LocationEntity> locations,
+                                     List<TransportationEntity> transportations,
+                                     Function<LocationEntity, Location> toDomain,
+                                     long version) {
+        final Map<Long, Integer> indexById = new HashMap<>();
+        final List<LocationEntity> nodes = new ArrayList<>();
+        for (LocationEntity location : locations) {
+            addNode(location, indexById, nodes);
+        }
+        for (TransportationEntity transportation : transportations) {
+            addNode(transportation.getOrigin(), indexById, nodes);
+            addNode(transportation.getDestination(), indexById, nodes);
+        }
+
+        final Draft draft = new Draft();
+        draft.version = version;
+        draft.locationCount = nodes.size();
+        draft.locationIds = new long[nodes.size()];
+        draft.locations = new Location[nodes.size()];
+        draft.indexByCode = new HashMap<>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) {
+            draft.locationIds[i] = nodes.get(i).getId();
+            draft.locations[i] = toDomain.apply(nodes.get(i));
+            draft.indexByCode.put(nodes.get(i).getCode(), i);
+        }
+        draft.dictionary = LocationDictionary.of(draft.indexByCode);
+
+        final int edgeCount = transportations.size();
+        draft.transportationSlots = edgeCount;
+        draft.edgeIds = new long[edgeCount];
+        draft.edgeOrigin = new int[edgeCount];
+        draft.edgeDestination = new int[edgeCount];
+        draft.edgeType = new byte[edgeCount];
+        draft.edgeDays = new byte[edgeCount];
+        draft.edgeDeparture = new short[edgeCount];
+        draft.edgeArrival = new short[edgeCount];
+        draft.edgeDuration = new short[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            final TransportationEntity transportation = transportations.get(e);
+            draft.edgeOrigin[e] = indexById.get(transportation.getOrigin().getId());
+            draft.edgeDestination[e] = indexById.get(transportation.getDestination().getId());
+            draft.setTransportation(e, transportation);
+        }
+
+        final int nodeCount = nodes.size();
+        final int[] scheduleOrder = IntStream.range(0, edgeCount).toArray();
+        final IntPredicate flight = e -> draft.edgeType[e] == TransportationType.FLIGHT.ordinal();
+        draft.outgoing = Adjacency.compile(nodeCount, draft.edgeOrigin, scheduleOrder, e -> true);
+        // Grouping the origin-ordered edges by destination leaves each arrival segment sorted by origin
+        final int[] originOrder = draft.outgoing.flatten(nodeCount);
+        draft.outgoingByDay = new Adjacency[OperatingDays.DAYS_PER_WEEK];
+        draft.flightsByDay = new Adjacency[OperatingDays.DAYS_PER_WEEK];
+        draft.arrivalsByDay = new Adjacency[OperatingDays.DAYS_PER_WEEK];
+        draft.groundArrivalsByDay = new Adjacency[OperatingDays.DAYS_PER_WEEK];
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            final int weekday = day;
+            final IntPredicate operating = e -> OperatingDays.contains(draft.edgeDays[e], weekday);
+            draft.outgoingByDay[day - 1] = Adjacency.compile(nodeCount, draft.edgeOrigin, scheduleOrder, operating);
+            draft.flightsByDay[day - 1] = Adjacency.compile(nodeCount, draft.edgeOrigin, scheduleOrder,
+                    operating.and(flight));
+            draft.arrivalsByDay[day - 1] = Adjacency.compile(nodeCount, draft.edgeDestination, originOrder, operating);
+            draft.groundArrivalsByDay[day - 1] = Adjacency.compile(nodeCount, draft.edgeDestination, originOrder,
+                    operating.and(flight.negate()));
+        }
+        return new TransitGraph(draft);
+    }
+
+    private static void addNode(LocationEntity location, Map<Long, Integer> indexById, List<LocationEntity> nodes) {
+        if (indexById.putIfAbsent(location.getId(), nodes.size()) == null) {
+            nodes.add(location);
+        }
+    }
+
+    /**
+     * Adds the location at index {@link #locationCount()}, or replaces the one at {@code location}.
+     */
+    TransitGraph withLocation(int location, long id, Location value) {
+        final Draft draft = new Draft(this);
+        if (location == locationCount) {
+            if (locationCount == locationIds.length) {
+                final int capacity = Math.max(8, locationCount * 2);
+                draft.locationIds = Arrays.copyOf(locationIds, capacity);
+                draft.locations = Arrays.copyOf(locations, capacity);
+            }
+            draft.locationIds[location] = id;
+            draft.locationCount = locationCount + 1;
+        } else {
+            draft.locations = locations.clone();
+        }
+        draft.locations[location] = value;
+
+        final Location previous = location < locationCount ? locations[location] : null;
+        if (previous == null || !Objects.equals(previous.code(), value.code())) {
+            draft.indexByCode = new HashMap<>(indexByCode);
+            if (previous != null) {
+                draft.indexByCode.remove(previous.code(), location);
+            }
+            draft.indexByCode.put(value.code(), location);
+            draft.dictionary = LocationDictionary.of(draft.indexByCode);
+        }
+        return new TransitGraph(draft);
+    }
+
+    /**
+     * Removes a location that no transportation uses any more. Its index stays reserved until the next full build.
+     */
+    TransitGraph withoutLocation(int location) {
+        if (outgoing.size(location) > 0 || hasArrivals(location)) {
+            throw new IllegalStateException("Location is still in use: " + locationIds[location]);
+        }
+        final Draft draft = new Draft(this);
+        draft.locations = locations.clone();
+        draft.locations[location] = null;
+        draft.indexByCode = new HashMap<>(indexByCode);
+        draft.indexByCode.remove(locations[location].code(), location);
+        draft.dictionary = LocationDictionary.of(draft.indexByCode);
+        return new TransitGraph(draft);
+    }
+
+    private boolean hasArrivals(int location) {
+        for (int i = 0; i < locationCount; i++) {
+            for (int k = 0; k < outgoing.size(i); k++) {
+                if (edgeDestination[outgoing.edge(i, k)] == location) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends {@code transportation} in slot {@link #transportationSlots()}, between the locations at {@code origin}
+     * and {@code destination}.
+     */
+    TransitGraph withTransportation(int origin, int destination, TransportationEntity transportation) {
+        final Draft draft = new Draft(this);
+        final int slot = transportationSlots;
+        if (slot == edgeIds.length) {
+            final int capacity = Math.max(16, slot * 2);
+            draft.edgeIds = Arrays.copyOf(edgeIds, capacity);
+            draft.edgeOrigin = Arrays.copyOf(edgeOrigin, capacity);
+            draft.edgeDestination = Arrays.copyOf(edgeDestination, capacity);
+            draft.edgeType = Arrays.copyOf(edgeType, capacity);
+            draft.edgeDays = Arrays.copyOf(edgeDays, capacity);
+            draft.edgeDeparture = Arrays.copyOf(edgeDeparture, capacity);
+            draft.edgeArrival = Arrays.copyOf(edgeArrival, capacity);
+            draft.edgeDuration = Arrays.copyOf(edgeDuration, capacity);
+        }
+        draft.edgeOrigin[slot] = origin;
+        draft.edgeDestination[slot] = destination;
+        draft.setTransportation(slot, transportation);
+        draft.transportationSlots = slot + 1;
+        final TransportationType type = transportation.getType();
+        final int days = draft.edgeDays[slot];
+
+        // Slots grow monotonically, so appending keeps every segment in slot order
+        draft.outgoing = outgoing.withSegment(origin, append(outgoing, origin, slot));
+        draft.outgoingByDay = outgoingByDay.clone();
+        draft.flightsByDay = flightsByDay.clone();
+        draft.arrivalsByDay = arrivalsByDay.clone();
+        draft.groundArrivalsByDay = groundArrivalsByDay.clone();
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            if (!OperatingDays.contains(days, day)) {
+                continue;
+            }
+            final Adjacency departures = outgoingByDay[day - 1];
+            draft.outgoingByDay[day - 1] = departures.withSegment(origin, append(departures, origin, slot));
+            final Adjacency incoming = arrivalsByDay[day - 1];
+            draft.arrivalsByDay[day - 1] = incoming.withSegment(destination,
+                    insertByOrigin(incoming, destination, slot, draft.edgeOrigin));
+            if (type == TransportationType.FLIGHT) {
+                final Adjacency flights = flightsByDay[day - 1];
+                draft.flightsByDay[day - 1] = flights.withSegment(origin, append(flights, origin, slot));
+            } else {
+                final Adjacency arrivals = groundArrivalsByDay[day - 1];
+                draft.groundArrivalsByDay[day - 1] = arrivals.withSegment(destination,
+                        insertByOrigin(arrivals, destination, slot, draft.edgeOrigin));
+            }
+        }
+        return new TransitGraph(draft);
+    }
+
+    /**
+     * Unlinks the transportation in {@code slot} from every adjacency view.
+     */
+    TransitGraph withoutTransportation(int slot) {
+        final Draft draft = new Draft(this);
+        final int origin = edgeOrigin[slot];
+        final int destination = edgeDestination[slot];
+        draft.removedTransportations = removedTransportations + 1;
+        draft.outgoing = outgoing.withSegment(origin, remove(outgoing, origin, slot));
+        draft.outgoingByDay = outgoingByDay.clone();
+        draft.flightsByDay = flightsByDay.clone();
+        draft.arrivalsByDay = arrivalsByDay.clone();
+        draft.groundArrivalsByDay = groundArrivalsByDay.clone();
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            if (!OperatingDays.contains(edgeDays[slot], day)) {
+                continue;
+            }
+            final Adjacency departures = outgoingByDay[day - 1];
+            draft.outgoingByDay[day - 1] = departures.withSegment(origin, remove(departures, origin, slot));
+            final Adjacency incoming = arrivalsByDay[day - 1];
+            draft.arrivalsByDay[day - 1] = incoming.withSegment(destination, remove(incoming, destination, slot));
+            if (isFlight(slot)) {
+                final Adjacency flights = flightsByDay[day - 1];
+                draft.flightsByDay[day - 1] = flights.withSegment(origin, remove(flights, origin, slot));
+            } else {
+                final Adjacency arrivals = groundArrivalsByDay[day - 1];
+                draft.groundArrivalsByDay[day - 1] = arrivals.withSegment(destination, remove(arrivals, destination, slot));
+            }
+        }
+        return new TransitGraph(draft);
+    }
+
+    private static int[] append(Adjacency adjacency, int location, int slot) {
+        final int size = adjacency.size(location);
+        final int[] segment = new int[size + 1];
+        for (int k = 0; k < size; k++) {
+            segment[k] = adjacency.edge(location, k);
+        }
+        segment[size] = slot;
+        return segment;
+    }
+
+    private static int[] insertByOrigin(Adjacency adjacency, int location, int slot, int[] edgeOrigin) {
+        final int size = adjacency.size(location);
+        final int[] segment = new int[size + 1];
+        int k = 0;
+        while (k < size && edgeOrigin[adjacency.edge(location, k)] <= edgeOrigin[slot]) {
+            segment[k] = adjacency.edge(location, k);
+            k++;
+        }
+        segment[k] = slot;
+        for (; k < size; k++) {
+            segment[k + 1] = adjacency.edge(location, k);
+        }
+        return segment;
+    }
+
+    private static int[] remove(Adjacency adjacency, int location, int slot) {
+        final int size = adjacency.size(location);
+        final int[] segment = new int[size];
+        int i = 0;
+        for (int k = 0; k < size; k++) {
+            final int edge = adjacency.edge(location, k);
+            if (edge != slot) {
+                segment[i++] = edge;
+            }
+        }
+        return i == size ? segment : Arrays.copyOf(segment, i);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return a copy of this snapshot with a new version number
+     */
+    TransitGraph withVersion(long version) {
+        final Draft draft = new Draft(this);
+        draft.version = version;
+        return new TransitGraph(draft);
+    }
+
+    /**
+     * @return whether enough removed transportations have piled up for a full build to pay off
+     */
+    public boolean needsCompaction() {
+        return removedTransportations > COMPACTION_THRESHOLD
+               && removedTransportations > transportationSlots - removedTransportations;
+    }
+
+    /**
+     * @return the number of location indexes, including those of removed locations
+     */
+    public int locationCount() {
+        return locationCount;
+    }
+
+    public int transportationCount() {
+        return transportationSlots - removedTransportations;
+    }
+
+    /**
+     * @return the number of transportation slots, including those of removed transportations
+     */
+    public int transportationSlots() {
+        return transportationSlots;
+    }
+
+    /**
+     * @return the dense index of the location with the given code, or {@code -1} if there is none
+     */
+    public int indexOf(String code) {
+        return indexByCode.getOrDefault(code, -1);
+    }
+
+    /**
+     * Like {@link #indexOf(String)}, but ignores case when there is no exact match.
+     */
+    public int indexOfIgnoreCase(String code) {
+        final Integer index = indexByCode.get(code);
+        return index != null ? index : dictionary.find(code);
+    }
+
+    /**
+     * @return the indexes of up to {@code limit} locations whose code starts with {@code prefix} ignoring case, ordered
+     * by code
+     */
+    public int[] findByCodePrefix(String prefix, int limit) {
+        return dictionary.findByPrefix(prefix, limit);
+    }
+
+    public boolean isRemoved(int location) {
+        return locations[location] == null;
+    }
+
+    public long locationId(int location) {
+        return locationIds[location];
+    }
+
+    public Location location(int location) {
+        return locations[location];
+    }
+
+    public String locationCode(int location) {
+        return locations[location].code();
+    }
+
+    /**
+     * @return whether {@code other} holds exactly the locations of this snapshot, as after transportation changes only
+     */
+    boolean hasSameLocations(TransitGraph other) {
+        return locations == other.locations && locationCount == other.locationCount;
+    }
+
+    /**
+     * @return all transportations grouped by origin, regardless of operating day
+     */
+    public Adjacency outgoing() {
+        return outgoing;
+    }
+
+    /**
+     * @return transportations operating on {@code day}, grouped by origin; empty for days outside {@code 1..7}
+     */
+    public Adjacency outgoing(int day) {
+        return OperatingDays.isValid(day) ? outgoingByDay[day - 1] : Adjacency.EMPTY;
+    }
+
+    /**
+     * @return flights operating on {@code day}, grouped by origin; empty for days outside {@code 1..7}
+     */
+    public Adjacency flights(int day) {
+        return OperatingDays.isValid(day) ? flightsByDay[day - 1] : Adjacency.EMPTY;
+    }
+
+    /**
+     * @return transportations operating on {@code day}, grouped by destination and ordered by origin within each
+     * segment; empty for days outside {@code 1..7}
+     */
+    public Adjacency arrivals(int day) {
+        return OperatingDays.isValid(day) ? arrivalsByDay[day - 1] : Adjacency.EMPTY;
+    }
+
+    /**
+     * @return ground transportations operating on {@code day}, grouped by destination and ordered by origin within
+     * each segment; empty for days outside {@code 1..7}
+     */
+    public Adjacency groundArrivals(int day) {
+        return OperatingDays.isValid(day) ? groundArrivalsByDay[day - 1] : Adjacency.EMPTY;
+    }
+
+    public long transportationId(int transportation) {
+        return edgeIds[transportation];
+    }
+
+    public int origin(int transportation) {
+        return edgeOrigin[transportation];
+    }
+
+    public int destination(int transportation) {
+        return edgeDestination[transportation];
+    }
+
+    public TransportationType type(int transportation) {
+        return TYPES[edgeType[transportation]];
+    }
+
+    public boolean isFlight(int transportation) {
+        return edgeType[transportation] == TransportationType.FLIGHT.ordinal();
+    }
+
+    public boolean operatesOn(int transportation, int day) {
+        return OperatingDays.contains(edgeDays[transportation], day);
+    }
+
+    public int operatingDays(int transportation) {
+        return edgeDays[transportation];
+    }
+
+    /**
+     * @return whether the transportation runs to a timetable; otherwise it can be taken at any time and takes
+     * {@link #duration(int)} minutes
+     */
+    public boolean isTimed(int transportation) {
+        return edgeDeparture[transportation] != NO_TIME;
+    }
+
+    public int departure(int transportation) {
+        return edgeDeparture[transportation];
+    }
+
+    /**
+     * @return the arrival time; before the departure time when the transportation arrives on the next day
+     */
+    public int arrival(int transportation) {
+        return edgeArrival[transportation];
+    }
+
+    /**
+     * @return the travel time of a transportation without a timetable, {@code 0} if it has none
+     */
+    public int duration(int transportation) {
+        return edgeDuration[transportation] == NO_TIME ? 0 : edgeDuration[transportation];
+    }
+
+    /**
+     * @return the domain value of the transportation, as returned in routes
+     */
+    public Transportation transportation(int transportation) {
+        return new Transportation(
+                edgeIds[transportation],
+                locations[edgeOrigin[transportation]],
+                locations[edgeDestination[transportation]],
+                TYPES[edgeType[transportation]],
+                OperatingDays.toList(edgeDays[transportation]),
+                toTime(edgeDeparture[transportation]),
+                toTime(edgeArrival[transportation]),
+                edgeDuration[transportation] == NO_TIME ? null : (int) edgeDuration[transportation]);
+    }
+
+    private static int toMinutes(LocalTime time) {
+        return time == null ? NO_TIME : time.getHour() * 60 + time.getMinute();
+    }
+
+    private static LocalTime toTime(int minutes) {
+        return minutes == NO_TIME ? null : LocalTime.of(minutes / 60, minutes % 60);
+    }
+
+    /**
+     * Mutable working copy used to assemble a new version.
+     */
+    private static final class Draft {
+        private long version;
+        private int locationCount;
+        private long[] locationIds;
+        private Location[] locations;
+        private Map<String, Integer> indexByCode;
+        private LocationDictionary dictionary;
+        private int transportationSlots;
+        private int removedTransportations;
+        private long[] edgeIds;
+        private int[] edgeOrigin;
+        private int[] edgeDestination;
+        private byte[] edgeType;
+        private byte[] edgeDays;
+        private short[] edgeDeparture;
+        private short[] edgeArrival;
+        private short[] edgeDuration;
+        private Adjacency outgoing;
+        private Adjacency[] outgoingByDay;
+        private Adjacency[] flightsByDay;
+        private Adjacency[] arrivalsByDay;
+        private Adjacency[] groundArrivalsByDay;
+
+        private Draft() {
+        }
+
+        private Draft(TransitGraph base) {
+            this.version = base.version + 1;
+            this.locationCount = base.locationCount;
+            this.locationIds = base.locationIds;
+            this.locations = base.locations;
+            this.indexByCode = base.indexByCode;
+            this.dictionary = base.dictionary;
+            this.transportationSlots = base.transportationSlots;
+            this.removedTransportations = base.removedTransportations;
+            this.edgeIds = base.edgeIds;
+            this.edgeOrigin = base.edgeOrigin;
+            this.edgeDestination = base.edgeDestination;
+            this.edgeType = base.edgeType;
+            this.edgeDays = base.edgeDays;
+            this.edgeDeparture = base.edgeDeparture;
+            this.edgeArrival = base.edgeArrival;
+            this.edgeDuration = base.edgeDuration;
+            this.outgoing = base.outgoing;
+            this.outgoingByDay = base.outgoingByDay;
+            this.flightsByDay = base.flightsByDay;
+            this.arrivalsByDay = base.arrivalsByDay;
+            this.groundArrivalsByDay = base.groundArrivalsByDay;
+        }
+
+        private void setTransportation(int slot, TransportationEntity transportation) {
+            edgeIds[slot] = transportation.getId();
+            edgeType[slot] = (byte) transportation.getType().ordinal();
+            edgeDays[slot] = (byte) OperatingDays.toMask(transportation.getOperatingDays());
+            edgeDeparture[slot] = (short) toMinutes(transportation.getDepartureTime());
+            edgeArrival[slot] = (short) toMinutes(transportation.getArrivalTime());
+            edgeDuration[slot] = (short) (transportation.getDurationMinutes() == null
+                    ? NO_TIME : transportation.getDurationMinutes());
+        }
+    }
+
+    /**
+     * Adjacency lists of transportation slots, one segment per location.
+     * <p>
+     * Segments live in fixed-size pages, so replacing one segment copies only that segment, its page and the page
+     * table.
+     */
+    public static final class Adjacency {
+        static final Adjacency EMPTY = new Adjacency(new int[0][][]);
+
+        private static final int PAGE_BITS = 8;
+        private static final int PAGE_SIZE = 1 << PAGE_BITS;
+        private static final int[] NO_EDGES = new int[0];
+
+        private final int[][][] pages;
+
+        private Adjacency(int[][][] pages) {
+            this.pages = pages;
+        }
+
+        /**
+         * Groups the included transportations by {@code key} with a counting sort, which keeps the order they are
+         * listed in {@code order} within each segment.
+         */
+        private static Adjacency compile(int nodeCount, int[] key, int[] order, IntPredicate include) {
+            final int[] sizes = new int[nodeCount];
+            for (int e : order) {
+                if (include.test(e)) {
+                    sizes[key[e]]++;
+                }
+            }
+            final int[][][] pages = new int[(nodeCount + PAGE_SIZE - 1) >>> PAGE_BITS][][];
+            for (int n = 0; n < nodeCount; n++) {
+                if (sizes[n] > 0) {
+                    page(pages, n)[n & (PAGE_SIZE - 1)] = new int[sizes[n]];
+                }
+            }
+            final int[] cursor = new int[nodeCount];
+            for (int e : order) {
+                if (include.test(e)) {
+                    final int n = key[e];
+                    pages[n >>> PAGE_BITS][n & (PAGE_SIZE - 1)][cursor[n]++] = e;
+                }
+            }
+            return new Adjacency(pages);
+        }
+
+        private static int[][] page(int[][][] pages, int location) {
+            final int p = location >>> PAGE_BITS;
+            if (pages[p] == null) {
+                pages[p] = new int[PAGE_SIZE][];
+            }
+            return pages[p];
+        }
+
+        private int[] segment(int location) {
+            final int p = location >>> PAGE_BITS;
+            if (p >= pages.length || pages[p] == null) {
+                return NO_EDGES;
+            }
+            final int[] segment = pages[p][location & (PAGE_SIZE - 1)];
+            return segment == null ? NO_EDGES : segment;
+        }
+
+        /**
+         * @return a copy of this adjacency in which the segment of {@code location} is replaced by {@code segment}
+         */
+        private Adjacency withSegment(int location, int[] segment) {
+            final int p = location >>> PAGE_BITS;
+            final int[][][] copy = Arrays.copyOf(pages, Math.max(pages.length, p + 1));
+            copy[p] = copy[p] == null ? new int[PAGE_SIZE][] : copy[p].clone();
+            copy[p][location & (PAGE_SIZE - 1)] = segment.length == 0 ? null : segment;
+            return new Adjacency(copy);
+        }
+
+        /**
+         * @return every transportation, segment after segment
+         */
+        private int[] flatten(int nodeCount) {
+            int total = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                total += size(n);
+            }
+            final int[] edges = new int[total];
+            int i = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                final int[] segment = segment(n);
+                System.arraycopy(segment, 0, edges, i, segment.length);
+                i += segment.length;
+            }
+            return edges;
+        }
+
+        public int size(int location) {
+            return segment(location).length;
+        }
+
+        public int edge(int location, int k) {
+            return segment(location)[k];
+        }
+    }
+}
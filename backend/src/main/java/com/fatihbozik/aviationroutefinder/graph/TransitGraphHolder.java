@@ -0,0 +1,152 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
+import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.repository.LocationRepository;
+import com.fatihbozik.aviationroutefinder.repository.TransportationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link TransitGraph} snapshot.
+ * <p>
+ * Readers always get a complete snapshot without blocking. A full snapshot is compiled at startup; after that every
+ * committed location or transportation change, made on this instance or relayed from another one by
+ * {@link ScheduleChangeRelay}, is applied as a single-entity delta and published as a new version. Each published
+ * version is announced with a {@link TransitGraphPublishedEvent}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransitGraphHolder {
+    private final LocationRepository locationRepository;
+    private final TransportationRepository transportationRepository;
+    private final LocationMapper locationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<TransitGraph> current = new AtomicReference<>(TransitGraph.empty());
+
+    // Writer-side lookups from database ids to graph indexes, guarded by this
+    private final Map<Long, Integer> locationIndexes = new HashMap<>();
+    private final Map<Long, Integer> transportationSlots = new HashMap<>();
+
+    public TransitGraph get() {
+        return current.get();
+    }
+
+    public long version() {
+        return current.get().version();
+    }
+
+    public synchronized TransitGraph refresh() {
+        return refresh(null);
+    }
+
+    /**
+     * @param change the change that made the rebuild necessary, if any
+     */
+    private TransitGraph refresh(ScheduleChangedEvent change) {
+        final TransitGraph previous = current.get();
+        final List<LocationEntity> locations = locationRepository.findAll();
+        final List<TransportationEntity> transportations = transportationRepository.findAll();
+        final TransitGraph graph = TransitGraph.build(locations, transportations, locationMapper::toDomain,
+                current.get().version() + 1);
+
+        locationIndexes.clear();
+        transportationSlots.clear();
+        final TransitGraph.Adjacency outgoing = graph.outgoing();
+        for (int location = 0; location < graph.locationCount(); location++) {
+            locationIndexes.put(graph.locationId(location), location);
+            for (int k = 0; k < outgoing.size(location); k++) {
+                transportationSlots.put(graph.transportationId(outgoing.edge(location, k)), outgoing.edge(location, k));
+            }
+        }
+
+        publish(graph, previous, change);
+        LOG.info("Compiled transit graph version {} with {} locations and {} transportations",
+                graph.version(), graph.locationCount(), graph.transportationCount());
+        return graph;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onScheduleChanged(ScheduleChangedEvent event) {
+        final TransitGraph previous = current.get();
+        try {
+            TransitGraph graph = switch (event.subject()) {
+                case LOCATION -> applyLocation(previous, event.id());
+                case TRANSPORTATION -> applyTransportation(previous, event.id());
+            };
+            if (graph.version() != previous.version() + 1) {
+                graph = graph.withVersion(previous.version() + 1);
+            }
+            if (graph.needsCompaction()) {
+                refresh(event);
+            } else {
+                publish(graph, previous, event);
+                LOG.debug("Published transit graph version {} for {}", graph.version(), event);
+            }
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not apply {} to the transit graph, rebuilding it", event, ex);
+            refresh();
+        }
+    }
+
+    private void publish(TransitGraph graph, TransitGraph previous, ScheduleChangedEvent change) {
+        current.set(graph);
+        eventPublisher.publishEvent(new TransitGraphPublishedEvent(graph, previous, change));
+    }
+
+    private TransitGraph applyLocation(TransitGraph graph, Long id) {
+        final Optional<LocationEntity> location = locationRepository.findById(id);
+        if (location.isPresent()) {
+            return withLocation(graph, location.get());
+        }
+        final Integer index = locationIndexes.remove(id);
+        return index == null ? graph : graph.withoutLocation(index);
+    }
+
+    private TransitGraph applyTransportation(TransitGraph graph, Long id) {
+        final Integer slot = transportationSlots.remove(id);
+        TransitGraph next = slot == null ? graph : graph.withoutTransportation(slot);
+
+        final Optional<TransportationEntity> transportation = transportationRepository.findById(id);
+        if (transportation.isPresent()) {
+            final TransportationEntity entity = transportation.get();
+            next = withLocation(next, entity.getOrigin());
+            next = withLocation(next, entity.getDestination());
+            transportationSlots.put(id, next.transportationSlots());
+            next = next.withTransportation(
+                    locationIndexes.get(entity.getOrigin().getId()),
+                    locationIndexes.get(entity.getDestination().getId()),
+                    entity);
+        }
+        return next;
+    }
+
+    private TransitGraph withLocation(TransitGraph graph, LocationEntity entity) {
+        final Integer index = locationIndexes.get(entity.getId());
+        if (index != null && locationMapper.toDomain(entity).equals(graph.location(index))) {
+            return graph;
+        }
+        final int location = index == null ? graph.locationCount() : index;
+        locationIndexes.put(entity.getId(), location);
+        return graph.withLocation(location, entity.getId(), locationMapper.toDomain(entity));
+    }
+}
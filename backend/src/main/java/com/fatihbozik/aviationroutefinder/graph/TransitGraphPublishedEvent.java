@@ -0,0 +1,11 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+/**
+ * Published by {@link TransitGraphHolder} every time a new graph version becomes visible to readers.
+ *
+ * @param graph    the new version
+ * @param previous the version it replaces
+ * @param change   the change applied to {@code previous}, or {@code null} if {@code graph} was compiled from scratch
+ */
+public record TransitGraphPublishedEvent(TransitGraph graph, TransitGraph previous, ScheduleChangedEvent change) {
+}
@@ -0,0 +1,5 @@
+/**
+ * The classes in this package represent AviationRouteFinder's in-memory route graph.
+ */
+
+package com.fatihbozik.aviationroutefinder.graph;
@@ -0,0 +1,53 @@
+package com.fatihbozik.aviationroutefinder.mapper;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.rest.model.CompactRoutesResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.LocationResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.TransportationResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps routes to a {@link CompactRoutesResponse}, where each transportation and location is listed once however many
+ * routes share it, and each route is the list of its transportations' indexes.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompactRoutesMapper {
+    private final TransportationMapper transportationMapper;
+    private final LocationMapper locationMapper;
+
+    public CompactRoutesResponse toResponse(List<Route> routes) {
+        final Map<Long, Integer> transportationIndexes = new HashMap<>();
+        final Map<Long, Location> locations = new LinkedHashMap<>();
+        final List<TransportationResponse> transportations = new ArrayList<>();
+        final List<List<Integer>> indexes = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            final List<Integer> legs = new ArrayList<>(route.steps().size());
+            for (Transportation step : route.steps()) {
+                legs.add(transportationIndexes.computeIfAbsent(step.id(), id -> {
+                    locations.putIfAbsent(step.origin().id(), step.origin());
+                    locations.putIfAbsent(step.destination().id(), step.destination());
+                    transportations.add(transportationMapper.toResponse(step));
+                    return transportations.size() - 1;
+                }));
+            }
+            indexes.add(legs);
+        }
+
+        final List<LocationResponse> locationResponses = new ArrayList<>(locations.size());
+        locations.values().forEach(location -> locationResponses.add(locationMapper.toResponse(location)));
+        return new CompactRoutesResponse()
+                .locations(locationResponses)
+                .transportations(transportations)
+                .routes(indexes);
+    }
+}
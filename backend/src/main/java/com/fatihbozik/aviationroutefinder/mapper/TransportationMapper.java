@@ -12,14 +12,20 @@ import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface TransportationMapper {
+    String TIME_FORMAT = "HH:mm";
+
     // REST ↔ Domain
     @Mapping(target = "id", ignore = true)
     @Mapping(source = "originId", target = "origin.id")
     @Mapping(source = "destinationId", target = "destination.id")
+    @Mapping(target = "departureTime", dateFormat = TIME_FORMAT)
+    @Mapping(target = "arrivalTime", dateFormat = TIME_FORMAT)
     Transportation toDomain(TransportationRequest request);
 
     @Mapping(source = "origin.id", target = "originId")
     @Mapping(source = "destination.id", target = "destinationId")
+    @Mapping(target = "departureTime", dateFormat = TIME_FORMAT)
+    @Mapping(target = "arrivalTime", dateFormat = TIME_FORMAT)
     TransportationResponse toResponse(Transportation transportation);
 
     List<TransportationResponse> toResponses(Collection<Transportation> transportations);
@@ -28,4 +28,16 @@ public class LocationEntity extends BaseEntity {
     @NotBlank
     @Column(nullable = false)
     private String code;
+
+    /**
+     * WGS 84 latitude in degrees, or {@code null} if the location has no coordinates.
+     */
+    @Column(name = "latitude")
+    private Double latitude;
+
+    /**
+     * WGS 84 longitude in degrees, set together with {@link #latitude}.
+     */
+    @Column(name = "longitude")
+    private Double longitude;
 }
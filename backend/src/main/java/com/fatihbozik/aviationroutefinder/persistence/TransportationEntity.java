@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.Type;
 
+import java.time.LocalTime;
 import java.util.List;
 
 @Getter
@@ -31,4 +32,20 @@ public class TransportationEntity extends BaseEntity {
     @Type(ListArrayType.class)
     @Column(name = "operating_days", columnDefinition = "integer[]")
     private List<Integer> operatingDays;
+
+    /**
+     * Local departure time; together with {@link #arrivalTime} it makes this a scheduled connection. An arrival time
+     * before the departure time is on the next day.
+     */
+    @Column(name = "departure_time")
+    private LocalTime departureTime;
+
+    @Column(name = "arrival_time")
+    private LocalTime arrivalTime;
+
+    /**
+     * Travel time of a transportation without a timetable, which can be taken at any time.
+     */
+    @Column(name = "duration_minutes")
+    private Integer durationMinutes;
 }
@@ -12,6 +12,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.net.URI;
 import java.time.Instant;
@@ -96,6 +97,40 @@ public class ExceptionControllerAdvice {
         return ResponseEntity.status(status).build();
     }
 
+    /**
+     * Handles {@link InvalidQueryException} raised for request parameters that are well-formed but not acceptable,
+     * e.g. an inverted date range.
+     *
+     * @param ex      The {@link InvalidQueryException} to be handled
+     * @param request {@link HttpServletRequest} object referring to the current request.
+     * @return A {@link ResponseEntity} containing the error information and a 400 Bad Request status.
+     */
+    @ExceptionHandler(InvalidQueryException.class)
+    @ResponseBody
+    public ResponseEntity<ProblemDetail> handleInvalidQueryException(InvalidQueryException ex, HttpServletRequest request) {
+        LOG.error("Error::{}", ex.getMessage(), ex);
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ProblemDetail detail = this.detailBuild(ex, status, request.getRequestURL());
+        return ResponseEntity.status(status).body(detail);
+    }
+
+    /**
+     * Handles exception thrown by Bean Validation on constraints declared directly on controller method parameters,
+     * e.g. the size of a request body list.
+     *
+     * @param ex      The {@link HandlerMethodValidationException} to be handled
+     * @param request {@link HttpServletRequest} object referring to the current request.
+     * @return A {@link ResponseEntity} containing the error information and a 400 Bad Request status.
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    @ResponseBody
+    public ResponseEntity<ProblemDetail> handleHandlerMethodValidationException(HandlerMethodValidationException ex, HttpServletRequest request) {
+        LOG.error("Error::{}", ex.getMessage(), ex);
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ProblemDetail detail = this.detailBuild(ex, status, request.getRequestURL());
+        return ResponseEntity.status(status).body(detail);
+    }
+
     /**
      * Private method for constructing the {@link ProblemDetail} object passing the name and details of the exception
      * class.
@@ -0,0 +1,12 @@
+package com.fatihbozik.aviationroutefinder.rest.advice;
+
+/**
+ * Thrown by REST controllers for query parameters that are well-formed but not acceptable, e.g. an inverted date
+ * range or a page size above the limit. Answered with 400 Bad Request by {@link ExceptionControllerAdvice}.
+ */
+public class InvalidQueryException extends RuntimeException {
+
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.fatihbozik.aviationroutefinder.rest.controller;
+
+import com.fatihbozik.aviationroutefinder.cache.TieredCacheManager;
+import com.fatihbozik.aviationroutefinder.rest.model.CacheStatisticsResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.RouteCacheRefreshStatisticsResponse;
+import com.fatihbozik.aviationroutefinder.service.RouteCacheRefresher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/caches")
+public class CacheController {
+    private final TieredCacheManager cacheManager;
+    private final RouteCacheRefresher routeCacheRefresher;
+
+    @GetMapping("statistics")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN)")
+    public List<CacheStatisticsResponse> getStatistics() {
+        return cacheManager.statistics().entrySet().stream()
+                .map(entry -> new CacheStatisticsResponse()
+                        .name(entry.getKey())
+                        .localHits(entry.getValue().localHits())
+                        .localMisses(entry.getValue().localMisses())
+                        .localHitRatio(entry.getValue().localHitRatio())
+                        .localSize(entry.getValue().localSize())
+                        .remoteHits(entry.getValue().remoteHits())
+                        .remoteMisses(entry.getValue().remoteMisses())
+                        .remoteHitRatio(entry.getValue().remoteHitRatio()))
+                .toList();
+    }
+
+    @GetMapping("routes/refresh-statistics")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN)")
+    public RouteCacheRefreshStatisticsResponse getRouteCacheRefreshStatistics() {
+        final RouteCacheRefresher.Statistics statistics = routeCacheRefresher.statistics();
+        return new RouteCacheRefreshStatisticsResponse()
+                .staleServes(statistics.staleServes())
+                .refreshes(statistics.refreshes())
+                .discardedRefreshes(statistics.discardedRefreshes())
+                .failedRefreshes(statistics.failedRefreshes())
+                .averageRefreshMillis(statistics.averageRefreshMillis())
+                .maxRefreshMillis(statistics.maxRefreshMillis());
+    }
+}
@@ -1,9 +1,12 @@
 package com.fatihbozik.aviationroutefinder.rest.controller;
 
 import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.graph.GreatCircle;
 import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
+import com.fatihbozik.aviationroutefinder.rest.advice.InvalidQueryException;
 import com.fatihbozik.aviationroutefinder.rest.model.LocationRequest;
 import com.fatihbozik.aviationroutefinder.rest.model.LocationResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.NearbyLocationResponse;
 import com.fatihbozik.aviationroutefinder.service.LocationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +19,8 @@ import java.util.List;
 @RequiredArgsConstructor
 @RequestMapping("/api/locations")
 public class LocationController {
+    private static final int MAX_RESULTS = 100;
+
     private final LocationService locationService;
     private final LocationMapper locationMapper;
 
@@ -26,6 +31,34 @@ public class LocationController {
         return locationMapper.toResponses(allLocations);
     }
 
+    @GetMapping("nearest")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<NearbyLocationResponse> getNearestLocations(@RequestParam double lat,
+                                                            @RequestParam double lon,
+                                                            @RequestParam(defaultValue = "5") int k) {
+        if (!GreatCircle.isValid(lat, lon)) {
+            throw new InvalidQueryException("Invalid coordinates: " + lat + ", " + lon);
+        }
+        if (k < 1 || k > MAX_RESULTS) {
+            throw new InvalidQueryException("k must be between 1 and " + MAX_RESULTS);
+        }
+        return locationService.findNearest(lat, lon, k).stream()
+                .map(nearby -> new NearbyLocationResponse()
+                        .location(locationMapper.toResponse(nearby.location()))
+                        .distanceKm(nearby.distanceKm()))
+                .toList();
+    }
+
+    @GetMapping("search")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<LocationResponse> searchLocations(@RequestParam String prefix,
+                                                  @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isBlank() || limit < 1 || limit > MAX_RESULTS) {
+            throw new InvalidQueryException("prefix must not be blank and limit must be between 1 and " + MAX_RESULTS);
+        }
+        return locationMapper.toResponses(locationService.findByCodePrefix(prefix.trim(), limit));
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole(@roles.ADMIN)")
     public LocationResponse createLocation(@RequestBody @Valid LocationRequest request) {
@@ -1,34 +1,283 @@
 package com.fatihbozik.aviationroutefinder.rest.controller;
 
+import com.fatihbozik.aviationroutefinder.domain.ReachableDestination;
 import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.RoutePage;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearch;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearchResult;
+import com.fatihbozik.aviationroutefinder.domain.RouteSort;
+import com.fatihbozik.aviationroutefinder.domain.ScheduledRoute;
+import com.fatihbozik.aviationroutefinder.graph.GreatCircle;
+import com.fatihbozik.aviationroutefinder.mapper.CompactRoutesMapper;
+import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
 import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import com.fatihbozik.aviationroutefinder.rest.advice.InvalidQueryException;
+import com.fatihbozik.aviationroutefinder.rest.model.CompactRoutesResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.DatedRoutesResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.NearbyRoutesResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.ReachableDestinationResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.RouteSearchRequest;
+import com.fatihbozik.aviationroutefinder.rest.model.RouteSearchResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.ScheduledRouteResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.ScheduledStepResponse;
 import com.fatihbozik.aviationroutefinder.rest.model.TransportationResponse;
 import com.fatihbozik.aviationroutefinder.service.RouteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/routes")
 public class RouteController {
+    public static final String COMPACT_JSON_VALUE = "application/vnd.aviation.compact+json";
+    public static final String COMPACT_CBOR_VALUE = "application/vnd.aviation.compact+cbor";
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_OFFSET = 10_000;
+    private static final int MAX_CANDIDATES = 10;
+
     private final RouteService routeService;
     private final TransportationMapper transportationMapper;
+    private final LocationMapper locationMapper;
+    private final CompactRoutesMapper compactRoutesMapper;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{originCode}/{destinationCode}/{date}")
     @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
     public List<List<TransportationResponse>> findRoutes(
+            @PathVariable String originCode,
+            @PathVariable String destinationCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "DISCOVERY") RouteSort sort,
+            @RequestParam(required = false) TransportationType preferredType) {
+        return toResponses(searchRoutes(originCode, destinationCode, date, limit, offset, sort, preferredType));
+    }
+
+    /**
+     * Same routes as {@link #findRoutes}, but each transportation and location is serialized only once, however many
+     * routes share it.
+     */
+    @GetMapping(value = "/{originCode}/{destinationCode}/{date}", produces = {COMPACT_JSON_VALUE, COMPACT_CBOR_VALUE})
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public CompactRoutesResponse findCompactRoutes(
+            @PathVariable String originCode,
+            @PathVariable String destinationCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "DISCOVERY") RouteSort sort,
+            @RequestParam(required = false) TransportationType preferredType) {
+        return compactRoutesMapper.toResponse(
+                searchRoutes(originCode, destinationCode, date, limit, offset, sort, preferredType));
+    }
+
+    private List<Route> searchRoutes(String originCode,
+                                     String destinationCode,
+                                     LocalDate date,
+                                     Integer limit,
+                                     int offset,
+                                     RouteSort sort,
+                                     TransportationType preferredType) {
+        final int day = date.getDayOfWeek().getValue();
+        if (limit == null && offset == 0 && sort == RouteSort.DISCOVERY) {
+            return routeService.calculateRoutes(originCode, destinationCode, day);
+        }
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT) || offset < 0 || offset > MAX_OFFSET) {
+            throw new InvalidQueryException("limit must be between 1 and " + MAX_LIMIT
+                                               + " and offset between 0 and " + MAX_OFFSET);
+        }
+        if (sort == RouteSort.PREFERRED_TYPE && preferredType == null) {
+            throw new InvalidQueryException("preferredType is required to sort by PREFERRED_TYPE");
+        }
+        final RoutePage page = new RoutePage(sort, preferredType, offset, limit == null ? MAX_LIMIT : limit);
+        return routeService.calculateRoutes(originCode, destinationCode, day, page);
+    }
+
+    /**
+     * Streams the routes as newline-delimited JSON, one route per line, while the search is still running. The first
+     * route is flushed immediately; after that the response buffer decides when bytes go out.
+     */
+    @GetMapping(value = "/{originCode}/{destinationCode}/{date}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public StreamingResponseBody streamRoutes(
             @PathVariable String originCode,
             @PathVariable String destinationCode,
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        final List<Route> routes = routeService.calculateRoutes(originCode, destinationCode, date.getDayOfWeek().getValue());
+        final Stream<Route> routes = routeService.streamRoutes(originCode, destinationCode, date.getDayOfWeek().getValue());
+        return out -> {
+            final boolean[] flushed = {false};
+            routes.forEach(route -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(transportationMapper.toResponses(route.steps())));
+                    out.write('\n');
+                    if (!flushed[0]) {
+                        out.flush();
+                        flushed[0] = true;
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        };
+    }
+
+    @GetMapping("/{originCode}/{destinationCode}/{date}/scheduled")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<ScheduledRouteResponse> findScheduledRoutes(
+            @PathVariable String originCode,
+            @PathVariable String destinationCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "00:00") @DateTimeFormat(pattern = "HH:mm") LocalTime departAfter) {
+        return routeService.calculateScheduledRoutes(originCode, destinationCode, date, departAfter).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    @GetMapping("/{originCode}/{destinationCode}/{date}/earliest")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public ScheduledRouteResponse findEarliestArrival(
+            @PathVariable String originCode,
+            @PathVariable String destinationCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "00:00") @DateTimeFormat(pattern = "HH:mm") LocalTime departAfter) {
+        return toResponse(routeService.calculateEarliestArrival(originCode, destinationCode, date, departAfter));
+    }
+
+    /**
+     * Routes only depend on the weekday, so each distinct weekday of the range is searched once and its routes are
+     * repeated for every date that falls on it.
+     */
+    @GetMapping("/{originCode}/{destinationCode}")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<DatedRoutesResponse> findRoutesInRange(
+            @PathVariable String originCode,
+            @PathVariable String destinationCode,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new InvalidQueryException("Date range must be ordered and span at most " + MAX_RANGE_DAYS + " days");
+        }
+        final List<LocalDate> dates = from.datesUntil(to.plusDays(1)).toList();
+        final Map<Integer, List<Route>> routesByDay = routeService.calculateRoutes(originCode, destinationCode,
+                dates.stream().map(date -> date.getDayOfWeek().getValue()).toList());
+
+        final Map<Integer, List<List<TransportationResponse>>> responsesByDay = new HashMap<>();
+        routesByDay.forEach((day, routes) -> responsesByDay.put(day, toResponses(routes)));
+        return dates.stream()
+                .map(date -> new DatedRoutesResponse()
+                        .date(date)
+                        .routes(responsesByDay.get(date.getDayOfWeek().getValue())))
+                .toList();
+    }
+
+    @GetMapping("/from/{originCode}/{date}")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<ReachableDestinationResponse> findReachableDestinations(
+            @PathVariable String originCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "true") boolean includeRoutes) {
+        final List<ReachableDestination> destinations =
+                routeService.calculateReachableDestinations(originCode, date.getDayOfWeek().getValue());
+        return destinations.stream()
+                .map(reachable -> new ReachableDestinationResponse()
+                        .destination(locationMapper.toResponse(reachable.destination()))
+                        .routeCount(reachable.routes().size())
+                        .routes(includeRoutes ? toResponses(reachable.routes()) : null))
+                .toList();
+    }
+
+    /**
+     * Searches from the locations closest to a point, for travellers who do not know the code of their origin.
+     */
+    @GetMapping("/nearest/{destinationCode}/{date}")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<NearbyRoutesResponse> findRoutesFromNearest(
+            @PathVariable String destinationCode,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "3") int candidates) {
+        if (!GreatCircle.isValid(lat, lon)) {
+            throw new InvalidQueryException("Invalid coordinates: " + lat + ", " + lon);
+        }
+        if (candidates < 1 || candidates > MAX_CANDIDATES) {
+            throw new InvalidQueryException("candidates must be between 1 and " + MAX_CANDIDATES);
+        }
+        return routeService.calculateRoutesFromNearest(lat, lon, destinationCode, date.getDayOfWeek().getValue(),
+                        candidates).stream()
+                .map(nearby -> new NearbyRoutesResponse()
+                        .origin(locationMapper.toResponse(nearby.origin()))
+                        .distanceKm(nearby.distanceKm())
+                        .routes(toResponses(nearby.routes())))
+                .toList();
+    }
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN, @roles.AGENCY)")
+    public List<RouteSearchResponse> findRoutesBatch(
+            @RequestBody @Size(max = MAX_BATCH_SIZE) List<@Valid RouteSearchRequest> requests) {
+        final List<RouteSearch> searches = requests.stream()
+                .map(request -> new RouteSearch(request.getOriginCode(), request.getDestinationCode(),
+                        request.getDate().getDayOfWeek().getValue()))
+                .toList();
+        final List<RouteSearchResult> results = routeService.calculateRoutes(searches);
+
+        final List<RouteSearchResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            final RouteSearchRequest request = requests.get(i);
+            final RouteSearchResult result = results.get(i);
+            responses.add(new RouteSearchResponse()
+                    .originCode(request.getOriginCode())
+                    .destinationCode(request.getDestinationCode())
+                    .date(request.getDate())
+                    .routes(toResponses(result.routes()))
+                    .error(result.error()));
+        }
+        return responses;
+    }
+
+    private ScheduledRouteResponse toResponse(ScheduledRoute route) {
+        return new ScheduledRouteResponse()
+                .departure(route.departure().toString())
+                .arrival(route.arrival().toString())
+                .steps(route.steps().stream()
+                        .map(step -> new ScheduledStepResponse()
+                                .transportation(transportationMapper.toResponse(step.transportation()))
+                                .departure(step.departure().toString())
+                                .arrival(step.arrival().toString()))
+                        .toList());
+    }
+
+    private List<List<TransportationResponse>> toResponses(List<Route> routes) {
         return routes.stream()
                 .map(route -> transportationMapper.toResponses(route.steps()))
                 .toList();
@@ -0,0 +1,36 @@
+package com.fatihbozik.aviationroutefinder.rest.controller;
+
+import com.fatihbozik.aviationroutefinder.graph.GreatCircleRouteEngine;
+import com.fatihbozik.aviationroutefinder.rest.model.RouteEngineStatisticsResponse;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/routes/engine")
+public class RouteEngineController {
+    private final ObjectProvider<GreatCircleRouteEngine> greatCircleRouteEngine;
+
+    /**
+     * Only the great-circle engine prunes legs; with any other engine there is nothing to report.
+     */
+    @GetMapping("statistics")
+    @PreAuthorize("hasAnyRole(@roles.ADMIN)")
+    public RouteEngineStatisticsResponse getStatistics() {
+        final GreatCircleRouteEngine engine = greatCircleRouteEngine.getIfAvailable();
+        if (engine == null) {
+            throw new EntityNotFoundException("The great-circle route engine is not active");
+        }
+        final GreatCircleRouteEngine.Statistics statistics = engine.statistics();
+        return new RouteEngineStatisticsResponse()
+                .searches(statistics.searches())
+                .examinedLegs(statistics.examinedLegs())
+                .detourLegs(statistics.detourLegs())
+                .unreachableLegs(statistics.unreachableLegs());
+    }
+}
@@ -1,6 +1,7 @@
 package com.fatihbozik.aviationroutefinder.service;
 
 import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.NearbyLocation;
 
 import java.util.List;
 
@@ -14,4 +15,14 @@ public interface LocationService {
     Location update(Long id, Location location);
 
     Location get(Long id);
+
+    /**
+     * @return up to {@code k} locations with coordinates closest to the given point, nearest first
+     */
+    List<NearbyLocation> findNearest(double latitude, double longitude, int k);
+
+    /**
+     * @return up to {@code limit} locations whose code starts with {@code prefix} ignoring case, ordered by code
+     */
+    List<Location> findByCodePrefix(String prefix, int limit);
 }
@@ -1,6 +1,12 @@
 package com.fatihbozik.aviationroutefinder.service;
 
 import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.NearbyLocation;
+import com.fatihbozik.aviationroutefinder.graph.GreatCircle;
+import com.fatihbozik.aviationroutefinder.graph.NearestLocationFinder;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraph;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraphHolder;
 import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
 import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
 import com.fatihbozik.aviationroutefinder.repository.LocationRepository;
@@ -10,9 +16,11 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -20,6 +28,9 @@ import java.util.List;
 public class LocationServiceImpl implements LocationService {
     private final LocationRepository locationRepository;
     private final LocationMapper locationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransitGraphHolder transitGraphHolder;
+    private final NearestLocationFinder nearestLocationFinder;
 
     @Override
     @Transactional(readOnly = true)
@@ -38,16 +49,14 @@ public class LocationServiceImpl implements LocationService {
     public Location create(Location location) {
         final LocationEntity entity = locationMapper.toEntity(location);
         final LocationEntity savedEntity = locationRepository.save(entity);
+        eventPublisher.publishEvent(ScheduleChangedEvent.location(savedEntity.getId()));
         return locationMapper.toDomain(savedEntity);
     }
 
     @Override
     @Transactional
     @Caching(
-            evict = {
-                    @CacheEvict(value = "locations", key = "'all'"),
-                    @CacheEvict(value = "routes", allEntries = true)
-            },
+            evict = {@CacheEvict(value = "locations", key = "'all'")},
             put = {@CachePut(value = "locations", key = "#id")}
     )
     public Location update(Long id, Location newData) {
@@ -55,6 +64,7 @@ public class LocationServiceImpl implements LocationService {
                 .orElseThrow(() -> new EntityNotFoundException("Location not found with id: " + id));
         locationMapper.updateEntity(newData, entity);
         final LocationEntity saved = locationRepository.save(entity);
+        eventPublisher.publishEvent(ScheduleChangedEvent.location(saved.getId()));
         return locationMapper.toDomain(saved);
     }
 
@@ -71,13 +81,40 @@ public class LocationServiceImpl implements LocationService {
     @Transactional
     @Caching(evict = {
             @CacheEvict(value = "locations", key = "#locationId"),
-            @CacheEvict(value = "locations", key = "'all'"),
-            @CacheEvict(value = "routes", allEntries = true)
+            @CacheEvict(value = "locations", key = "'all'")
     })
     public void delete(Long locationId) {
         if (!locationRepository.existsById(locationId)) {
             throw new EntityNotFoundException("Location not found with id: " + locationId);
         }
         locationRepository.deleteById(locationId);
+        eventPublisher.publishEvent(ScheduleChangedEvent.location(locationId));
+    }
+
+    /**
+     * Answered from the spatial index of the current transit graph, which holds every location, without touching the
+     * database.
+     */
+    @Override
+    public List<NearbyLocation> findNearest(double latitude, double longitude, int k) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int[] nearest = nearestLocationFinder.findNearest(graph, latitude, longitude, k);
+        final List<NearbyLocation> result = new ArrayList<>(nearest.length);
+        for (int index : nearest) {
+            final Location location = graph.location(index);
+            result.add(new NearbyLocation(location,
+                    GreatCircle.distanceKm(latitude, longitude, location.latitude(), location.longitude())));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Location> findByCodePrefix(String prefix, int limit) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final List<Location> result = new ArrayList<>();
+        for (int index : graph.findByCodePrefix(prefix, limit)) {
+            result.add(graph.location(index));
+        }
+        return result;
     }
 }
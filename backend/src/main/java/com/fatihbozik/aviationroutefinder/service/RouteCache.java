@@ -0,0 +1,422 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.cache.TieredCache;
+import com.fatihbozik.aviationroutefinder.domain.CachedRoutes;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleImpact;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Access to the cached answers of {@link RouteServiceImpl#calculateRoutes(String, String, int)} and its batch
+ * variants, keyed by {@link #key(String, String, int)} with the stored spelling of the codes.
+ * <p>
+ * Redis backed caches are read with a single {@code MGET}, after the local tier of a {@link TieredCache}; any other
+ * cache falls back to one lookup per key.
+ * <p>
+ * Entries are stored under their key prefixed with the cache generation, a counter kept in Redis:
+ * {@link #invalidateAll()} increments it instead of deleting entries, and entries of earlier generations age out
+ * through their time to live. Instances re-read the counter at most once per
+ * {@code aviation.cache.routes.generation-check-interval}, which bounds how long another instance keeps serving a
+ * generation that was invalidated elsewhere.
+ * <p>
+ * Next to the entries, Redis holds an index of the cached keys by origin and by destination code, so
+ * {@link #evict(ScheduleImpact)} only has to look at the entries of the affected locations. Index sets belong to a
+ * generation, live as long as the entries and may list keys that have expired since. Without Redis there is neither a
+ * generation counter nor an index, and every eviction clears the whole cache.
+ * <p>
+ * Entries remember when they were computed. Older than {@code aviation.cache.routes.soft-time-to-live} they are still
+ * returned, marked {@link Hit#stale() stale}, until Redis expires them after the hard time to live of the cache.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RouteCache {
+    public static final String NAME = "routes";
+    private static final String KEY_PREFIX = "route_";
+    private static final byte[] UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final CacheManager cacheManager;
+    private final RedisConnectionFactory connectionFactory;
+    @Value("${aviation.cache.routes.generation-check-interval:1s}")
+    private final Duration generationCheckInterval;
+    @Value("${aviation.cache.routes.soft-time-to-live:20m}")
+    private final Duration softTimeToLive;
+    private final AtomicReference<Generation> generation = new AtomicReference<>();
+
+    public static String key(String originCode, String destinationCode, int day) {
+        return KEY_PREFIX + originCode + "_" + destinationCode + "_" + day;
+    }
+
+    /**
+     * @return the cached routes of {@code key}, or {@code null} if there is no entry
+     */
+    public Hit get(String key) {
+        final Cache cache = cacheManager.getCache(NAME);
+        final Cache.ValueWrapper value = cache == null ? null : cache.get(stamp(key, generation()));
+        return value == null ? null : hit(value.get());
+    }
+
+    public void put(String key, List<Route> routes) {
+        putAll(Map.of(key, routes));
+    }
+
+    /**
+     * @return the cached routes of every key that has an entry; keys without one are left out
+     */
+    public Map<String, Hit> getAll(Collection<String> keys) {
+        final Cache cache = cacheManager.getCache(NAME);
+        if (cache == null || keys.isEmpty()) {
+            return Map.of();
+        }
+        final long current = generation();
+        final Map<String, String> keysByStamped = new HashMap<>();
+        keys.forEach(key -> keysByStamped.put(stamp(key, current), key));
+
+        final Map<String, Object> found = cache instanceof TieredCache tieredCache
+                ? tieredCache.getAll(keysByStamped.keySet(), missing -> getAll(tieredCache.remote(), missing))
+                : getAll(cache, keysByStamped.keySet());
+        final Map<String, Hit> result = new HashMap<>();
+        found.forEach((stamped, value) -> result.put(keysByStamped.get(stamped), hit(value)));
+        return result;
+    }
+
+    private Map<String, Object> getAll(Cache cache, Collection<String> keys) {
+        if (cache instanceof RedisCache redisCache) {
+            return multiGet(redisCache, List.copyOf(keys));
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        for (String key : keys) {
+            final Cache.ValueWrapper value = cache.get(key);
+            if (value != null) {
+                result.put(key, value.get());
+            }
+        }
+        return result;
+    }
+
+    public void putAll(Map<String, List<Route>> entries) {
+        final Cache cache = cacheManager.getCache(NAME);
+        if (cache == null || entries.isEmpty()) {
+            return;
+        }
+        final long current = generation();
+        final Instant computedAt = Instant.now();
+        final List<String> stampedKeys = new ArrayList<>(entries.size());
+        entries.forEach((key, routes) -> {
+            final String stamped = stamp(key, current);
+            cache.put(stamped, new CachedRoutes(routes, computedAt));
+            stampedKeys.add(stamped);
+        });
+
+        final RedisCache redisCache = redisCache(cache);
+        if (redisCache != null) {
+            index(redisCache, current, stampedKeys);
+        }
+    }
+
+    /**
+     * Evicts the entries of {@code keys} from the current generation.
+     */
+    public void evictAll(Collection<String> keys) {
+        final Cache cache = cacheManager.getCache(NAME);
+        if (cache == null) {
+            return;
+        }
+        final long current = generation();
+        keys.forEach(key -> cache.evict(stamp(key, current)));
+    }
+
+    /**
+     * Makes every entry unreachable. With Redis this is a single increment of the generation counter, whatever the
+     * size of the cache.
+     */
+    public void invalidateAll() {
+        final Cache cache = cacheManager.getCache(NAME);
+        if (cache == null) {
+            return;
+        }
+        final RedisCache redisCache = redisCache(cache);
+        if (redisCache == null) {
+            cache.clear();
+            return;
+        }
+
+        final Long incremented;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            incremented = connection.stringCommands().incr(generationKey(redisCache));
+        }
+        if (incremented != null) {
+            generation.set(new Generation(incremented, System.nanoTime()));
+            LOG.debug("Invalidated cached route searches, generation is now {}", incremented);
+        }
+    }
+
+    /**
+     * Takes the lock of {@code key} for at most {@code timeToLive}, shared by every instance using the same Redis.
+     *
+     * @return the token to {@link #unlock(String, String) unlock} with, or {@code null} if the lock is held elsewhere;
+     * without Redis the lock is always granted
+     */
+    public String tryLock(String key, Duration timeToLive) {
+        final Cache cache = cacheManager.getCache(NAME);
+        final RedisCache redisCache = cache == null ? null : redisCache(cache);
+        final String token = UUID.randomUUID().toString();
+        if (redisCache == null) {
+            return token;
+        }
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            final Boolean acquired = connection.stringCommands().set(lockKey(redisCache, key),
+                    token.getBytes(StandardCharsets.UTF_8), Expiration.from(timeToLive),
+                    RedisStringCommands.SetOption.ifAbsent());
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        }
+    }
+
+    /**
+     * Releases the lock of {@code key} if it is still held with {@code token}.
+     */
+    public void unlock(String key, String token) {
+        final Cache cache = cacheManager.getCache(NAME);
+        final RedisCache redisCache = cache == null ? null : redisCache(cache);
+        if (redisCache == null) {
+            return;
+        }
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(UNLOCK_SCRIPT, ReturnType.INTEGER, 1,
+                    lockKey(redisCache, key), token.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] lockKey(RedisCache cache, String key) {
+        return (cache.getCacheConfiguration().getKeyPrefixFor(cache.getName()) + "lock_" + key)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Evicts every entry whose search {@code impact} may affect.
+     */
+    public void evict(ScheduleImpact impact) {
+        final Cache cache = cacheManager.getCache(NAME);
+        if (cache == null || impact.areas().isEmpty() && !impact.isEverything()) {
+            return;
+        }
+        final RedisCache redisCache = redisCache(cache);
+        if (impact.isEverything() || redisCache == null) {
+            invalidateAll();
+            return;
+        }
+
+        final long current = generation();
+        final Set<String> indexKeys = new HashSet<>();
+        for (ScheduleImpact.Area area : impact.areas()) {
+            if (area.origins() != null) {
+                area.origins().forEach(code -> indexKeys.add(indexKey(redisCache, current, "from", code)));
+            } else if (area.destinations() != null) {
+                area.destinations().forEach(code -> indexKeys.add(indexKey(redisCache, current, "to", code)));
+            } else {
+                invalidateAll();
+                return;
+            }
+        }
+        // No area lists an origin or destination, e.g. for a transportation operating on no day: no search is affected
+        if (indexKeys.isEmpty()) {
+            return;
+        }
+
+        int evicted = 0;
+        for (String key : indexedKeys(indexKeys)) {
+            if (affects(impact, key)) {
+                cache.evict(key);
+                evicted++;
+            }
+        }
+        LOG.debug("Evicted {} cached route searches", evicted);
+    }
+
+    private static boolean affects(ScheduleImpact impact, String key) {
+        final String[] parts = parse(key);
+        try {
+            return parts == null || impact.affects(parts[0], parts[1], Integer.parseInt(parts[2]));
+        } catch (NumberFormatException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the origin code, destination code and day of the stamped {@code key}, or {@code null} if it is not a
+     * route key
+     */
+    private static String[] parse(String key) {
+        final int generationEnd = key.indexOf('_', KEY_PREFIX.length());
+        if (!key.startsWith(KEY_PREFIX) || generationEnd < 0) {
+            return null;
+        }
+        final String[] parts = key.substring(generationEnd + 1).split("_");
+        return parts.length == 3 ? parts : null;
+    }
+
+    /**
+     * @return {@code key} as stored in {@code generation}: {@code route_<generation>_<origin>_<destination>_<day>}
+     */
+    private static String stamp(String key, long generation) {
+        return KEY_PREFIX + generation + "_" + key.substring(KEY_PREFIX.length());
+    }
+
+    private long generation() {
+        final Generation known = generation.get();
+        if (connectionFactory == null
+            || known != null && System.nanoTime() - known.checkedAt() < generationCheckInterval.toNanos()) {
+            return known == null ? 0 : known.value();
+        }
+        final Cache cache = cacheManager.getCache(NAME);
+        final RedisCache redisCache = cache == null ? null : redisCache(cache);
+        if (redisCache == null) {
+            return 0;
+        }
+
+        final byte[] raw;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            raw = connection.stringCommands().get(generationKey(redisCache));
+        }
+        final Generation read = new Generation(raw == null ? 0 : Long.parseLong(new String(raw, StandardCharsets.UTF_8)),
+                System.nanoTime());
+        // An invalidation on this instance may have moved the generation on while reading
+        return generation.compareAndSet(known, read) ? read.value() : generation.get().value();
+    }
+
+    private static byte[] generationKey(RedisCache cache) {
+        return (cache.getCacheConfiguration().getKeyPrefixFor(cache.getName()) + "generation")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void index(RedisCache cache, long generation, Collection<String> keys) {
+        final Duration timeToLive = cache.getCacheConfiguration().getTtlFunction().getTimeToLive(null, null);
+        final Map<String, List<String>> keysByIndex = new HashMap<>();
+        for (String key : keys) {
+            final String[] parts = parse(key);
+            if (parts != null) {
+                keysByIndex.computeIfAbsent(indexKey(cache, generation, "from", parts[0]), index -> new ArrayList<>())
+                        .add(key);
+                keysByIndex.computeIfAbsent(indexKey(cache, generation, "to", parts[1]), index -> new ArrayList<>())
+                        .add(key);
+            }
+        }
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            keysByIndex.forEach((index, members) -> {
+                final byte[] rawIndex = index.getBytes(StandardCharsets.UTF_8);
+                connection.setCommands().sAdd(rawIndex, members.stream()
+                        .map(member -> member.getBytes(StandardCharsets.UTF_8))
+                        .toArray(byte[][]::new));
+                if (!timeToLive.isZero() && !timeToLive.isNegative()) {
+                    connection.keyCommands().expire(rawIndex, timeToLive.toSeconds());
+                }
+            });
+            connection.closePipeline();
+        }
+    }
+
+    private Set<String> indexedKeys(Collection<String> indexKeys) {
+        final Set<String> keys = new HashSet<>();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            final Set<byte[]> members = connection.setCommands().sUnion(indexKeys.stream()
+                    .map(index -> index.getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new));
+            if (members != null) {
+                members.forEach(member -> keys.add(new String(member, StandardCharsets.UTF_8)));
+            }
+        }
+        return keys;
+    }
+
+    private static String indexKey(RedisCache cache, long generation, String direction, String code) {
+        return cache.getCacheConfiguration().getKeyPrefixFor(cache.getName())
+               + "index_" + generation + "_" + direction + "_" + code;
+    }
+
+    private static RedisCache redisCache(Cache cache) {
+        final Cache remote = cache instanceof TieredCache tieredCache ? tieredCache.remote() : cache;
+        return remote instanceof RedisCache redisCache ? redisCache : null;
+    }
+
+    private Map<String, Object> multiGet(RedisCache cache, List<String> keys) {
+        final RedisCacheConfiguration config = cache.getCacheConfiguration();
+        final String prefix = config.getKeyPrefixFor(cache.getName());
+        final byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = ByteUtils.getBytes(config.getKeySerializationPair().write(prefix + keys.get(i)));
+        }
+
+        final List<byte[]> rawValues;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            rawValues = connection.stringCommands().mGet(rawKeys);
+        }
+
+        final Map<String, Object> result = new HashMap<>();
+        for (int i = 0; rawValues != null && i < rawValues.size(); i++) {
+            final byte[] rawValue = rawValues.get(i);
+            // Entries written by a newer release read as null
+            final Object value = rawValue == null ? null : config.getValueSerializationPair().read(ByteBuffer.wrap(rawValue));
+            if (value != null) {
+                result.put(keys.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entries written before their computation time was recorded never turn stale.
+     */
+    @SuppressWarnings("unchecked")
+    private Hit hit(Object value) {
+        if (value instanceof CachedRoutes cached) {
+            return new Hit(cached.routes(), cached.computedAt().plus(softTimeToLive).isBefore(Instant.now()));
+        }
+        return new Hit((List<Route>) value, false);
+    }
+
+    /**
+     * @param stale whether the entry is older than the soft time to live and should be recomputed
+     */
+    public record Hit(List<Route> routes, boolean stale) {
+    }
+
+    /**
+     * @param checkedAt {@link System#nanoTime()} when {@code value} was read from or written to Redis
+     */
+    private record Generation(long value, long checkedAt) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.graph.RouteRules;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleImpact;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraph;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraphPublishedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts the cached route searches a schedule change may have altered, once the graph version with the change is
+ * visible, instead of the whole route cache. Cached reachable destinations are cleared on any change that can alter a
+ * route.
+ */
+@Component
+@RequiredArgsConstructor
+public class RouteCacheInvalidator {
+    private final RouteRules routeRules;
+    private final RouteCache routeCache;
+    private final CacheManager cacheManager;
+
+    @EventListener
+    public void onTransitGraphPublished(TransitGraphPublishedEvent event) {
+        // The first graph after startup replaces nothing
+        if (event.previous() == TransitGraph.empty()) {
+            return;
+        }
+        final ScheduleImpact impact = ScheduleImpact.of(routeRules, event.previous(), event.graph(), event.change());
+        routeCache.evict(impact);
+
+        final Cache reachability = cacheManager.getCache(RouteServiceImpl.REACHABILITY_CACHE);
+        if (reachability != null && (impact.isEverything() || !impact.areas().isEmpty())) {
+            reachability.clear();
+        }
+    }
+}
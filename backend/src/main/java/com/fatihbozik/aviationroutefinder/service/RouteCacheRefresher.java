@@ -0,0 +1,98 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Recomputes stale route cache entries in the background while their stale answer keeps being served, at most one
+ * refresh per key at a time.
+ */
+@Slf4j
+@Component
+public class RouteCacheRefresher {
+    private final ExecutorService worker;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final LongAdder staleServes = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder discardedRefreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private final LongAccumulator maxRefreshNanos = new LongAccumulator(Math::max, 0);
+
+    public RouteCacheRefresher(@Value("${aviation.cache.routes.refresh-threads:2}") int threads) {
+        this.worker = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("route-cache-refresh-", 0).daemon().factory());
+    }
+
+    /**
+     * Records that the stale entry of {@code key} was served and schedules {@code refresh} unless the entry is being
+     * refreshed already.
+     *
+     * @param refresh recomputes the routes of {@code key} and caches them, returning whether they were cached
+     */
+    public void refresh(String key, BooleanSupplier refresh) {
+        staleServes.increment();
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            worker.execute(() -> run(key, refresh));
+        } catch (RejectedExecutionException ex) {
+            refreshing.remove(key);
+        }
+    }
+
+    private void run(String key, BooleanSupplier refresh) {
+        final long start = System.nanoTime();
+        LongAdder outcome = failedRefreshes;
+        try {
+            outcome = refresh.getAsBoolean() ? refreshes : discardedRefreshes;
+        } catch (RuntimeException ex) {
+            LOG.warn("Could not refresh the cached routes of {}", key, ex);
+        } finally {
+            refreshing.remove(key);
+            final long nanos = System.nanoTime() - start;
+            refreshNanos.add(nanos);
+            maxRefreshNanos.accumulate(nanos);
+            outcome.increment();
+        }
+    }
+
+    public Statistics statistics() {
+        final long completed = refreshes.sum() + discardedRefreshes.sum() + failedRefreshes.sum();
+        return new Statistics(staleServes.sum(), refreshes.sum(), discardedRefreshes.sum(), failedRefreshes.sum(),
+                completed == 0 ? 0 : refreshNanos.sum() / 1e6 / completed, maxRefreshNanos.get() / 1e6);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * @param staleServes          answers served from stale entries
+     * @param refreshes            background refreshes that cached a new answer
+     * @param discardedRefreshes   background refreshes whose answer was not cached because the graph changed meanwhile
+     * @param failedRefreshes      background refreshes that threw
+     * @param averageRefreshMillis mean duration of the completed refreshes, or 0 before the first one
+     * @param maxRefreshMillis     longest duration of a completed refresh
+     */
+    public record Statistics(long staleServes,
+                             long refreshes,
+                             long discardedRefreshes,
+                             long failedRefreshes,
+                             double averageRefreshMillis,
+                             double maxRefreshMillis) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical route searches that missed the cache share one computation.
+ * <p>
+ * The first caller for a key computes the routes; callers arriving while it runs wait for its answer for up to
+ * {@code aviation.routes.coalescing.timeout} and then compute their own. Searches on different graph versions never
+ * share an answer.
+ * <p>
+ * With {@code aviation.routes.coalescing.distributed}, the computing caller also takes a short Redis lock on the key,
+ * so that instances missing the same entry at the same time wait for the lock holder to cache its answer instead of
+ * all computing it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RouteSearchCoalescer {
+    private static final long POLL_INTERVAL_MILLIS = 25;
+
+    private final RouteCache routeCache;
+    @Value("${aviation.routes.coalescing.timeout:5s}")
+    private final Duration timeout;
+    @Value("${aviation.routes.coalescing.distributed:false}")
+    private final boolean distributed;
+    @Value("${aviation.routes.coalescing.lock-time-to-live:10s}")
+    private final Duration lockTimeToLive;
+    private final ConcurrentMap<String, CompletableFuture<List<Route>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key     cache key of the search, see {@link RouteCache#key(String, String, int)}
+     * @param version version of the graph {@code search} runs on
+     * @param search  computes the routes and caches them
+     */
+    public List<Route> coalesce(String key, long version, Supplier<List<Route>> search) {
+        final String flight = key + '@' + version;
+        final CompletableFuture<List<Route>> own = new CompletableFuture<>();
+        final CompletableFuture<List<Route>> running = inFlight.putIfAbsent(flight, own);
+        if (running != null) {
+            return await(running, key, search);
+        }
+
+        try {
+            final List<Route> routes = distributed ? searchLocked(key, search) : search.get();
+            own.complete(routes);
+            return routes;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(flight, own);
+        }
+    }
+
+    /**
+     * @return the number of keys being computed right now
+     */
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    private List<Route> await(CompletableFuture<List<Route>> running, String key, Supplier<List<Route>> search) {
+        try {
+            return running.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            LOG.debug("Gave up waiting for the running search of {}, searching independently", key);
+            return search.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search of " + key, ex);
+        }
+    }
+
+    /**
+     * Runs {@code search} under the Redis lock of {@code key}. While another instance holds it, polls the cache for
+     * its answer until the timeout, then searches regardless. A lock taken after waiting is usually one the holder
+     * released after caching its answer, so the cache is looked at once more before searching.
+     */
+    private List<Route> searchLocked(String key, Supplier<List<Route>> search) {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        String token = routeCache.tryLock(key, lockTimeToLive);
+        boolean waited = false;
+        while (token == null && System.nanoTime() < deadline) {
+            waited = true;
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the search of " + key, ex);
+            }
+            final RouteCache.Hit cached = routeCache.get(key);
+            if (cached != null) {
+                return cached.routes();
+            }
+            token = routeCache.tryLock(key, lockTimeToLive);
+        }
+
+        try {
+            if (waited && token != null) {
+                final RouteCache.Hit cached = routeCache.get(key);
+                if (cached != null) {
+                    return cached.routes();
+                }
+            }
+            return search.get();
+        } finally {
+            if (token != null) {
+                routeCache.unlock(key, token);
+            }
+        }
+    }
+}
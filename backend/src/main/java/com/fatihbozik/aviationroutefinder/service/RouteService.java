@@ -1,10 +1,85 @@
 package com.fatihbozik.aviationroutefinder.service;
 
+import com.fatihbozik.aviationroutefinder.domain.NearbyRoutes;
+import com.fatihbozik.aviationroutefinder.domain.ReachableDestination;
 import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.RoutePage;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearch;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearchResult;
+import com.fatihbozik.aviationroutefinder.domain.ScheduledRoute;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface RouteService {
 
     List<Route> calculateRoutes(String originCode, String destinationCode, int day);
+
+    /**
+     * Like {@link #calculateRoutes(String, String, int)}, but sorted and cut to {@code page}. For the same graph version
+     * consecutive pages neither overlap nor skip routes.
+     * <p>
+     * At most {@code offset + limit} routes are held at once, whatever the sort. Only {@code FEWEST_LEGS} and
+     * {@code FEWEST_TRANSFERS} stop the search early; the other sorts enumerate every route of the day, so deep pages
+     * cost as much as the full search.
+     */
+    List<Route> calculateRoutes(String originCode, String destinationCode, int day, RoutePage page);
+
+    /**
+     * Resolves both locations immediately, but only searches while the returned stream is consumed: each route is
+     * handed over as soon as it is found, without collecting the whole answer first.
+     */
+    Stream<Route> streamRoutes(String originCode, String destinationCode, int day);
+
+    /**
+     * Runs several searches against the same graph version.
+     *
+     * @return one result per search, in the order of {@code searches}
+     */
+    List<RouteSearchResult> calculateRoutes(List<RouteSearch> searches);
+
+    /**
+     * Searches each distinct day of {@code days} once.
+     *
+     * @return the routes of every requested day, keyed by day
+     */
+    Map<Integer, List<Route>> calculateRoutes(String originCode, String destinationCode, Collection<Integer> days);
+
+    /**
+     * Resolves the given point to the {@code candidates} locations closest to it and searches from each of them.
+     *
+     * @return the routes from every candidate origin other than the destination itself, nearest origin first
+     */
+    List<NearbyRoutes> calculateRoutesFromNearest(double latitude,
+                                                  double longitude,
+                                                  String destinationCode,
+                                                  int day,
+                                                  int candidates);
+
+    /**
+     * @return every location reachable from {@code originCode} on {@code day} with its valid routes, ordered by code
+     */
+    List<ReachableDestination> calculateReachableDestinations(String originCode, int day);
+
+    /**
+     * @return the valid routes on {@code date} whose transfers fit the timetable when leaving no earlier than
+     * {@code departAfter}, each taken as early as possible and ordered by arrival
+     */
+    List<ScheduledRoute> calculateScheduledRoutes(String originCode,
+                                                  String destinationCode,
+                                                  LocalDate date,
+                                                  LocalTime departAfter);
+
+    /**
+     * @return the journey on {@code date} that leaves no earlier than {@code departAfter} and arrives first
+     * @throws jakarta.persistence.EntityNotFoundException if a location is unknown or there is no such journey
+     */
+    ScheduledRoute calculateEarliestArrival(String originCode,
+                                            String destinationCode,
+                                            LocalDate date,
+                                            LocalTime departAfter);
 }
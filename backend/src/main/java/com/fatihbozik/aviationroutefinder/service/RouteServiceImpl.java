@@ -1,135 +1,465 @@
 package com.fatihbozik.aviationroutefinder.service;
 
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.NearbyRoutes;
+import com.fatihbozik.aviationroutefinder.domain.ReachableDestination;
 import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.RoutePage;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearch;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearchResult;
+import com.fatihbozik.aviationroutefinder.domain.ScheduledRoute;
+import com.fatihbozik.aviationroutefinder.domain.ScheduledStep;
 import com.fatihbozik.aviationroutefinder.domain.Transportation;
-import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
-import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
-import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
-import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
-import com.fatihbozik.aviationroutefinder.repository.LocationRepository;
-import com.fatihbozik.aviationroutefinder.repository.TransportationRepository;
+import com.fatihbozik.aviationroutefinder.graph.ConnectionScanEngine;
+import com.fatihbozik.aviationroutefinder.graph.GreatCircle;
+import com.fatihbozik.aviationroutefinder.graph.Journey;
+import com.fatihbozik.aviationroutefinder.graph.NearestLocationFinder;
+import com.fatihbozik.aviationroutefinder.graph.RankedRouteSearch;
+import com.fatihbozik.aviationroutefinder.graph.ReachabilityEngine;
+import com.fatihbozik.aviationroutefinder.graph.ReachabilityFilter;
+import com.fatihbozik.aviationroutefinder.graph.RouteEngine;
+import com.fatihbozik.aviationroutefinder.graph.RouteRanking;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraph;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraphHolder;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
 public class RouteServiceImpl implements RouteService {
-    private final LocationRepository locationRepository;
-    private final TransportationRepository transportationRepository;
-    private final TransportationMapper transportationMapper;
+    static final String REACHABILITY_CACHE = "reachability";
+
+    private final TransitGraphHolder transitGraphHolder;
+    private final RouteEngine routeEngine;
+    private final ReachabilityEngine reachabilityEngine;
+    private final RankedRouteSearch rankedRouteSearch;
+    private final ConnectionScanEngine connectionScanEngine;
+    private final NearestLocationFinder nearestLocationFinder;
+    private final ReachabilityFilter reachabilityFilter;
+    private final RouteCache routeCache;
+    private final CacheManager cacheManager;
+    private final RouteSearchCoalescer routeSearchCoalescer;
+    private final RouteCacheRefresher routeCacheRefresher;
+    @Qualifier("routeSearchExecutor")
+    private final ExecutorService routeSearchExecutor;
 
     @Override
-    @Cacheable(value = "routes", key = "'route_' + #originCode + '_' + #destinationCode + '_' + #day")
     public List<Route> calculateRoutes(String originCode, String destinationCode, int day) {
-        final LocationEntity origin = locationRepository.findByCode(originCode)
-                .orElseThrow(() -> new EntityNotFoundException("Origin Location not found: " + originCode));
-        final LocationEntity destination = locationRepository.findByCode(destinationCode)
-                .orElseThrow(() -> new EntityNotFoundException("Destination Location not found" + destinationCode));
-
-        List<TransportationEntity> allTransportations = transportationRepository.findAll();
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final int destination = resolveDestination(graph, destinationCode);
+        if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, day)) {
+            return List.of();
+        }
 
-        Map<LocationEntity, List<TransportationEntity>> graph = buildGraph(allTransportations, day);
+        final String key = RouteCache.key(graph.locationCode(origin), graph.locationCode(destination), day);
+        final RouteCache.Hit cached = routeCache.get(key);
+        if (cached != null) {
+            if (cached.stale()) {
+                refreshInBackground(graph, key, origin, destination, day);
+            }
+            return cached.routes();
+        }
+        return routeSearchCoalescer.coalesce(key, graph.version(),
+                () -> searchAndCache(graph, key, origin, destination, day));
+    }
 
-        List<Route> result = new ArrayList<>();
-        Set<LocationEntity> visited = new HashSet<>();
+    @Override
+    public List<Route> calculateRoutes(String originCode, String destinationCode, int day, RoutePage page) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final int destination = resolveDestination(graph, destinationCode);
+        if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, day)) {
+            return List.of();
+        }
 
-        dfs(origin, destination, graph, new ArrayList<>(), visited, result);
+        final int count = page.offset() + page.limit();
+        final List<int[]> routes = switch (page.sort()) {
+            case DISCOVERY -> findDiscoveredRoutes(graph, origin, destination, day, page);
+            case FEWEST_LEGS, FEWEST_TRANSFERS -> skip(rankedRouteSearch.findTopRoutes(graph, origin, destination, day,
+                    RouteRanking.fewestLegs(), count), page.offset());
+            case PREFERRED_TYPE -> skip(rankedRouteSearch.findTopRoutes(graph, origin, destination, day,
+                    RouteRanking.preferredType(page.preferredType()), count), page.offset());
+        };
 
+        final List<Route> result = new ArrayList<>(routes.size());
+        for (int[] legs : routes) {
+            result.add(toRoute(graph, legs));
+        }
         return result;
     }
 
-    private Map<LocationEntity, List<TransportationEntity>> buildGraph(List<TransportationEntity> transportations, int day) {
-        return transportations.stream()
-                .filter(t -> t.getOperatingDays().contains(day))
-                .collect(Collectors.groupingBy(TransportationEntity::getOrigin));
+    /**
+     * The engine cannot stop early, so every route is still enumerated, but only those of {@code page} are kept.
+     */
+    private List<int[]> findDiscoveredRoutes(TransitGraph graph, int origin, int destination, int day, RoutePage page) {
+        final List<int[]> found = new ArrayList<>(Math.min(page.limit(), 64));
+        final int[] seen = {0};
+        routeEngine.findRoutes(graph, origin, destination, day, legs -> {
+            if (seen[0]++ >= page.offset() && found.size() < page.limit()) {
+                found.add(legs);
+            }
+        });
+        return found;
+    }
+
+    private static List<int[]> skip(List<int[]> routes, int offset) {
+        return routes.subList(Math.min(offset, routes.size()), routes.size());
     }
 
-    private void dfs(LocationEntity current,
-                     LocationEntity target,
-                     Map<LocationEntity, List<TransportationEntity>> graph,
-                     List<TransportationEntity> path,
-                     Set<LocationEntity> visited,
-                     List<Route> result) {
+    @Override
+    public Stream<Route> streamRoutes(String originCode, String destinationCode, int day) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final int destination = resolveDestination(graph, destinationCode);
+        if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, day)) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new RouteSpliterator(graph, origin, destination, day), false);
+    }
 
-        // Check if we reached the target
-        if (current.equals(target)) {
-            // Only validate the route if we've reached the destination
-            if (isValidRoute(path)) {
-                result.add(new Route(new ArrayList<>(mapToDomainList(path))));
+    @Override
+    public List<RouteSearchResult> calculateRoutes(List<RouteSearch> searches) {
+        return calculateRoutes(transitGraphHolder.get(), searches);
+    }
+
+    private List<RouteSearchResult> calculateRoutes(TransitGraph graph, List<RouteSearch> searches) {
+        final RouteSearchResult[] results = new RouteSearchResult[searches.size()];
+
+        // Identical searches share a cache key and are only looked up and computed once. Keys use the stored spelling
+        // of the codes, so searches differing only in case share an entry too.
+        final Map<String, List<Integer>> positionsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            final RouteSearch search = searches.get(i);
+            final int origin = graph.indexOfIgnoreCase(search.originCode());
+            final int destination = graph.indexOfIgnoreCase(search.destinationCode());
+            if (origin < 0) {
+                results[i] = RouteSearchResult.failed(originNotFound(search.originCode()));
+            } else if (destination < 0) {
+                results[i] = RouteSearchResult.failed(destinationNotFound(search.destinationCode()));
+            } else if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, search.day())) {
+                // Not worth a cache round trip
+                results[i] = RouteSearchResult.found(List.of());
+            } else {
+                positionsByKey.computeIfAbsent(RouteCache.key(graph.locationCode(origin), graph.locationCode(destination),
+                        search.day()), key -> new ArrayList<>()).add(i);
             }
-            return;
         }
 
-        // Early path length check
-        if (path.size() >= 3) {
-            return; // Limit exceeded, backtrack
+        final Map<String, List<Route>> routesByKey = new HashMap<>();
+        routeCache.getAll(positionsByKey.keySet()).forEach((key, cached) -> {
+            routesByKey.put(key, cached.routes());
+            if (cached.stale()) {
+                final RouteSearch search = searches.get(positionsByKey.get(key).getFirst());
+                refreshInBackground(graph, key, graph.indexOfIgnoreCase(search.originCode()),
+                        graph.indexOfIgnoreCase(search.destinationCode()), search.day());
+            }
+        });
+        final Map<String, List<Route>> computed = new ConcurrentHashMap<>();
+        final List<CompletableFuture<Void>> running = new ArrayList<>();
+        positionsByKey.forEach((key, positions) -> {
+            if (routesByKey.containsKey(key)) {
+                return;
+            }
+            final RouteSearch search = searches.get(positions.getFirst());
+            final int origin = graph.indexOfIgnoreCase(search.originCode());
+            final int destination = graph.indexOfIgnoreCase(search.destinationCode());
+            running.add(CompletableFuture.runAsync(() -> computed.put(key, routeSearchCoalescer.coalesce(key,
+                    graph.version(), () -> searchAndCache(graph, key, origin, destination, search.day()))),
+                    routeSearchExecutor));
+        });
+        try {
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
         }
+        routesByKey.putAll(computed);
+
+        positionsByKey.forEach((key, positions) -> {
+            for (int position : positions) {
+                results[position] = RouteSearchResult.found(routesByKey.get(key));
+            }
+        });
+        return List.of(results);
+    }
+
+    @Override
+    public Map<Integer, List<Route>> calculateRoutes(String originCode, String destinationCode, Collection<Integer> days) {
+        final List<Integer> distinctDays = days.stream().distinct().toList();
+        final List<RouteSearchResult> results = calculateRoutes(distinctDays.stream()
+                .map(day -> new RouteSearch(originCode, destinationCode, day))
+                .toList());
 
-        // Early flight count check
-        long flightCount = path.stream()
-                .filter(t -> t.getType() == TransportationType.FLIGHT)
-                .count();
-        if (flightCount > 1) {
-            return; // More than one flight, backtrack
+        final Map<Integer, List<Route>> routesByDay = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            final RouteSearchResult result = results.get(i);
+            if (result.error() != null) {
+                throw new EntityNotFoundException(result.error());
+            }
+            routesByDay.put(distinctDays.get(i), result.routes());
         }
+        return routesByDay;
+    }
 
-        visited.add(current);
+    @Override
+    public List<NearbyRoutes> calculateRoutesFromNearest(double latitude,
+                                                         double longitude,
+                                                         String destinationCode,
+                                                         int day,
+                                                         int candidates) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int destination = resolveDestination(graph, destinationCode);
 
-        List<TransportationEntity> options = graph.getOrDefault(current, Collections.emptyList());
-        for (TransportationEntity transportation : options) {
-            if (!visited.contains(transportation.getDestination())) {
-                path.add(transportation);
-                dfs(transportation.getDestination(), target, graph, path, visited, result);
-                path.removeLast();
+        // One extra candidate in case the destination itself is among the nearest
+        final List<Location> origins = new ArrayList<>(candidates);
+        for (int origin : nearestLocationFinder.findNearest(graph, latitude, longitude, candidates + 1)) {
+            if (origin != destination && origins.size() < candidates) {
+                origins.add(graph.location(origin));
             }
         }
+        final List<RouteSearchResult> results = calculateRoutes(graph, origins.stream()
+                .map(origin -> new RouteSearch(origin.code(), destinationCode, day))
+                .toList());
 
-        visited.remove(current);
+        final List<NearbyRoutes> nearby = new ArrayList<>(origins.size());
+        for (int i = 0; i < origins.size(); i++) {
+            final Location origin = origins.get(i);
+            nearby.add(new NearbyRoutes(origin,
+                    GreatCircle.distanceKm(latitude, longitude, origin.latitude(), origin.longitude()),
+                    results.get(i).routes()));
+        }
+        return nearby;
     }
 
-    // Separate method for route validation
-    private boolean isValidRoute(List<TransportationEntity> path) {
-        // Check path length
-        if (path.size() > 3) {
-            return false;
+    /**
+     * Cached under the stored spelling of the origin code, so lookups differing only in case share an entry.
+     * {@link RouteCacheInvalidator} clears the cache when the schedule changes.
+     */
+    @Override
+    public List<ReachableDestination> calculateReachableDestinations(String originCode, int day) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final Cache cache = cacheManager.getCache(REACHABILITY_CACHE);
+        if (cache == null) {
+            return findReachableDestinations(graph, origin, day);
         }
+        return cache.get("reach_" + graph.location(origin).code() + "_" + day,
+                () -> findReachableDestinations(graph, origin, day));
+    }
+
+    private List<ReachableDestination> findReachableDestinations(TransitGraph graph, int origin, int day) {
+        final Map<Integer, List<Route>> routesByDestination = new HashMap<>();
+        reachabilityEngine.findRoutes(graph, origin, day, (legs, destination) ->
+                routesByDestination.computeIfAbsent(destination, key -> new ArrayList<>()).add(toRoute(graph, legs)));
+
+        final List<ReachableDestination> result = new ArrayList<>(routesByDestination.size());
+        routesByDestination.forEach((destination, routes) ->
+                result.add(new ReachableDestination(graph.location(destination), routes)));
+        result.sort(Comparator.comparing(reachable -> reachable.destination().code()));
+        return result;
+    }
 
-        // Exactly one flight check
-        long flightCount = path.stream()
-                .filter(t -> t.getType() == TransportationType.FLIGHT)
-                .count();
-        if (flightCount != 1) {
-            return false; // Must have exactly one flight
+    @Override
+    public List<ScheduledRoute> calculateScheduledRoutes(String originCode,
+                                                         String destinationCode,
+                                                         LocalDate date,
+                                                         LocalTime departAfter) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final int destination = resolveDestination(graph, destinationCode);
+        if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, date.getDayOfWeek().getValue())) {
+            return List.of();
         }
 
-        // Find flight index
-        int flightIndex = -1;
-        for (int i = 0; i < path.size(); i++) {
-            if (path.get(i).getType() == TransportationType.FLIGHT) {
-                flightIndex = i;
-                break;
+        final List<Journey> journeys = new ArrayList<>();
+        routeEngine.findRoutes(graph, origin, destination, date.getDayOfWeek().getValue(), legs -> {
+            final Journey journey = connectionScanEngine.schedule(graph, legs, toMinutes(departAfter));
+            if (journey != null) {
+                journeys.add(journey);
             }
+        });
+        // Stable sort: equally good journeys stay in discovery order
+        journeys.sort(Comparator.comparingInt(Journey::arrival)
+                .thenComparing(Comparator.comparingInt(Journey::departure).reversed()));
+
+        final List<ScheduledRoute> result = new ArrayList<>(journeys.size());
+        for (Journey journey : journeys) {
+            result.add(toScheduledRoute(graph, date, journey));
+        }
+        return result;
+    }
+
+    @Override
+    public ScheduledRoute calculateEarliestArrival(String originCode,
+                                                   String destinationCode,
+                                                   LocalDate date,
+                                                   LocalTime departAfter) {
+        final TransitGraph graph = transitGraphHolder.get();
+        final int origin = resolveOrigin(graph, originCode);
+        final int destination = resolveDestination(graph, destinationCode);
+
+        final Journey journey = connectionScanEngine.findEarliestArrival(graph, origin, destination,
+                date.getDayOfWeek().getValue(), toMinutes(departAfter));
+        if (journey == null) {
+            throw new EntityNotFoundException("No route from " + originCode + " to " + destinationCode + " on "
+                                              + date + " after " + departAfter);
         }
+        return toScheduledRoute(graph, date, journey);
+    }
 
-        // Uçuş öncesi en fazla bir taşıma olmalı
-        if (flightIndex > 1) {
+    private void refreshInBackground(TransitGraph graph, String key, int origin, int destination, int day) {
+        routeCacheRefresher.refresh(key, () -> cache(graph, Map.of(key, findRoutes(graph, origin, destination, day))));
+    }
+
+    private List<Route> searchAndCache(TransitGraph graph, String key, int origin, int destination, int day) {
+        final List<Route> routes = findRoutes(graph, origin, destination, day);
+        cache(graph, Map.of(key, routes));
+        return routes;
+    }
+
+    /**
+     * Skips answers computed on a graph version that has been replaced meanwhile: the eviction for the replacing change
+     * may already have run. The graph holder moves to a new version before that eviction starts, so the version is
+     * checked again after writing, and the entries are evicted if it moved while they were being written.
+     *
+     * @return whether the entries were written and kept
+     */
+    private boolean cache(TransitGraph graph, Map<String, List<Route>> entries) {
+        if (transitGraphHolder.version() != graph.version()) {
             return false;
         }
-
-        // Uçuş sonrası en fazla bir taşıma olmalı
-        if ((path.size() - flightIndex - 1) > 1) {
+        routeCache.putAll(entries);
+        if (transitGraphHolder.version() != graph.version()) {
+            routeCache.evictAll(entries.keySet());
             return false;
         }
-
         return true;
     }
 
-    private List<Transportation> mapToDomainList(List<TransportationEntity> entities) {
-        return transportationMapper.toDomains(entities);
+    private List<Route> findRoutes(TransitGraph graph, int origin, int destination, int day) {
+        if (!reachabilityFilter.mayHaveRoute(graph, origin, destination, day)) {
+            return List.of();
+        }
+        List<Route> result = new ArrayList<>();
+        routeEngine.findRoutes(graph, origin, destination, day, legs -> result.add(toRoute(graph, legs)));
+        return result;
+    }
+
+    private Route toRoute(TransitGraph graph, int[] legs) {
+        final List<Transportation> steps = new ArrayList<>(legs.length);
+        for (int leg : legs) {
+            steps.add(graph.transportation(leg));
+        }
+        return new Route(steps);
+    }
+
+    private ScheduledRoute toScheduledRoute(TransitGraph graph, LocalDate date, Journey journey) {
+        final LocalDateTime midnight = date.atStartOfDay();
+        final List<ScheduledStep> steps = new ArrayList<>(journey.legs().length);
+        for (int i = 0; i < journey.legs().length; i++) {
+            steps.add(new ScheduledStep(graph.transportation(journey.legs()[i]),
+                    midnight.plusMinutes(journey.departures()[i]),
+                    midnight.plusMinutes(journey.arrivals()[i])));
+        }
+        return new ScheduledRoute(steps);
+    }
+
+    private static int toMinutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Pushes routes straight from the engine when the stream is traversed as a whole. Element-wise traversal, e.g.
+     * after {@link Stream#limit(long)}, cannot pause the engine and falls back to searching everything up front.
+     */
+    private final class RouteSpliterator extends Spliterators.AbstractSpliterator<Route> {
+        private final TransitGraph graph;
+        private final int origin;
+        private final int destination;
+        private final int day;
+        private Iterator<Route> buffered;
+
+        private RouteSpliterator(TransitGraph graph, int origin, int destination, int day) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.graph = graph;
+            this.origin = origin;
+            this.destination = destination;
+            this.day = day;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Route> action) {
+            if (buffered == null) {
+                buffered = findRoutes(graph, origin, destination, day).iterator();
+            }
+            if (!buffered.hasNext()) {
+                return false;
+            }
+            action.accept(buffered.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Route> action) {
+            if (buffered != null) {
+                super.forEachRemaining(action);
+                return;
+            }
+            buffered = Collections.emptyIterator();
+            routeEngine.findRoutes(graph, origin, destination, day, legs -> action.accept(toRoute(graph, legs)));
+        }
+    }
+
+    private static int resolveOrigin(TransitGraph graph, String originCode) {
+        final int origin = graph.indexOfIgnoreCase(originCode);
+        if (origin < 0) {
+            throw new EntityNotFoundException(originNotFound(originCode));
+        }
+        return origin;
+    }
+
+    private static int resolveDestination(TransitGraph graph, String destinationCode) {
+        final int destination = graph.indexOfIgnoreCase(destinationCode);
+        if (destination < 0) {
+            throw new EntityNotFoundException(destinationNotFound(destinationCode));
+        }
+        return destination;
+    }
+
+    private static String originNotFound(String originCode) {
+        return "Origin Location not found: " + originCode;
+    }
+
+    private static String destinationNotFound(String destinationCode) {
+        return "Destination Location not found" + destinationCode;
     }
 }
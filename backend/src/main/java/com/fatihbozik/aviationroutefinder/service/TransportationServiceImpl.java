@@ -1,6 +1,7 @@
 package com.fatihbozik.aviationroutefinder.service;
 
 import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
 import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
 import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
 import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
@@ -12,6 +13,7 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +25,7 @@ public class TransportationServiceImpl implements TransportationService {
     private final LocationRepository locationRepository;
     private final TransportationMapper transportationMapper;
     private final TransportationRepository transportationRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional(readOnly = true)
@@ -35,15 +38,13 @@ public class TransportationServiceImpl implements TransportationService {
     @Override
     @Transactional
     @Caching(
-            evict = {
-                    @CacheEvict(value = "transportations", key = "'all'"),
-                    @CacheEvict(value = "routes", allEntries = true)
-            },
+            evict = {@CacheEvict(value = "transportations", key = "'all'")},
             put = {@CachePut(value = "transportations", key = "#result.id")}
     )
     public Transportation create(Transportation transportation) {
         final TransportationEntity entity = transportationMapper.toEntity(transportation);
         final TransportationEntity savedEntity = transportationRepository.save(entity);
+        eventPublisher.publishEvent(ScheduleChangedEvent.transportation(savedEntity.getId()));
         return transportationMapper.toDomain(savedEntity);
     }
 
@@ -59,16 +60,14 @@ public class TransportationServiceImpl implements TransportationService {
     @Override
     @Transactional
     @Caching(
-            evict = {
-                    @CacheEvict(value = "transportations", key = "'all'"),
-                    @CacheEvict(value = "routes", allEntries = true)
-            },
+            evict = {@CacheEvict(value = "transportations", key = "'all'")},
             put = { @CachePut(value = "transportations", key = "#id") }
     )
     public Transportation update(Long id, Transportation newTransportation) {
         final TransportationEntity entity = getTransportation(id);
         patchEntity(newTransportation, entity);
         final TransportationEntity saved = transportationRepository.save(entity);
+        eventPublisher.publishEvent(ScheduleChangedEvent.transportation(saved.getId()));
         return transportationMapper.toDomain(saved);
     }
 
@@ -76,14 +75,14 @@ public class TransportationServiceImpl implements TransportationService {
     @Transactional
     @Caching(evict = {
             @CacheEvict(value = "transportations", key = "#transportationId"),
-            @CacheEvict(value = "transportations", key = "'all'"),
-            @CacheEvict(value = "routes", allEntries = true)
+            @CacheEvict(value = "transportations", key = "'all'")
     })
     public void delete(Long transportationId) {
         if (!transportationRepository.existsById(transportationId)) {
             throw new EntityNotFoundException("Transportation not found with id: " + transportationId);
         }
         transportationRepository.deleteById(transportationId);
+        eventPublisher.publishEvent(ScheduleChangedEvent.transportation(transportationId));
     }
 
     private void patchEntity(Transportation newTransportation, TransportationEntity entity) {
@@ -95,6 +94,9 @@ public class TransportationServiceImpl implements TransportationService {
 
         entity.setType(newTransportation.type());
         entity.setOperatingDays(newTransportation.operatingDays());
+        entity.setDepartureTime(newTransportation.departureTime());
+        entity.setArrivalTime(newTransportation.arrivalTime());
+        entity.setDurationMinutes(newTransportation.durationMinutes());
     }
 
     private LocationEntity getLocation(Long id) {
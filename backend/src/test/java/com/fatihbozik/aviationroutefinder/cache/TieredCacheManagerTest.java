@@ -0,0 +1,73 @@
+package com.fatihbozik.aviationroutefinder.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TieredCacheManagerTest {
+
+    private final ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager("routes");
+    private final List<TieredCacheManager> instances = new ArrayList<>();
+    private TieredCacheManager first;
+    private TieredCacheManager second;
+
+    @BeforeEach
+    void setUp() {
+        // Both instances share the remote tier and hear each other's announcements
+        final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            instances.forEach(instance -> instance.onInvalidation(invocation.getArgument(1)));
+            return 1L;
+        }).when(redisTemplate).convertAndSend(eq(TieredCacheManager.INVALIDATION_CHANNEL), any(Object.class));
+
+        first = new TieredCacheManager(redis, redisTemplate, 100, Duration.ofMinutes(1));
+        second = new TieredCacheManager(redis, redisTemplate, 100, Duration.ofMinutes(1));
+        instances.addAll(List.of(first, second));
+    }
+
+    @Test
+    void get_RepeatedLookup_AnsweredLocallyAfterRemoteHit() {
+        redis.getCache("routes").put("route_IST_LHR_1", List.of("route"));
+        final Cache cache = first.getCache("routes");
+
+        cache.get("route_IST_LHR_1");
+        cache.get("route_IST_LHR_1");
+        cache.get("route_IST_SAW_1");
+
+        assertThat(((TieredCache) cache).statistics())
+                .isEqualTo(new TieredCache.Statistics(1, 2, 1, 1, 1));
+    }
+
+    @Test
+    void put_OnOtherInstance_DropsStaleLocalCopy() {
+        first.getCache("routes").put("route_IST_LHR_1", List.of("old"));
+        second.getCache("routes").get("route_IST_LHR_1");
+
+        first.getCache("routes").put("route_IST_LHR_1", List.of("new"));
+
+        assertThat(second.getCache("routes").get("route_IST_LHR_1").get()).isEqualTo(List.of("new"));
+    }
+
+    @Test
+    void clear_OnOtherInstance_DropsAllLocalCopies() {
+        first.getCache("routes").put("route_IST_LHR_1", List.of("route"));
+        second.getCache("routes").get("route_IST_LHR_1");
+
+        first.getCache("routes").clear();
+
+        assertThat(second.getCache("routes").get("route_IST_LHR_1")).isNull();
+        assertThat(first.statistics()).containsOnlyKeys("routes");
+    }
+}
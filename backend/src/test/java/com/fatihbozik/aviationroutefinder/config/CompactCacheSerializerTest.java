@@ -0,0 +1,94 @@
+package com.fatihbozik.aviationroutefinder.config;
+
+import com.fatihbozik.aviationroutefinder.domain.CachedRoutes;
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+    private final List<Route> routes = routes();
+
+    CompactCacheSerializerTest() {
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+    }
+
+    @Test
+    void serialize_Routes_RoundTripsSmallerThanJson() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, 64);
+
+        final byte[] bytes = serializer.serialize(routes);
+
+        assertThat(serializer.deserialize(bytes)).isEqualTo(routes);
+        assertThat(bytes.length).isLessThan(json.serialize(routes).length / 10);
+    }
+
+    @Test
+    void serialize_CachedRoutes_RoundTripsWithComputationTime() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, 64);
+        final CachedRoutes cached = new CachedRoutes(routes, Instant.ofEpochMilli(1_760_000_000_000L));
+
+        assertThat(serializer.deserialize(serializer.serialize(cached))).isEqualTo(cached);
+    }
+
+    @Test
+    void serialize_OtherValues_RoundTripThroughJson() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, -1);
+
+        assertThat(serializer.deserialize(serializer.serialize(Map.of("count", 3)))).isEqualTo(Map.of("count", 3));
+    }
+
+    @Test
+    void deserialize_JsonOfEarlierRelease_ReadsValue() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, -1);
+
+        assertThat(serializer.deserialize(json.serialize(routes))).isEqualTo(routes);
+    }
+
+    @Test
+    void deserialize_FirstFormatVersion_ReadsValue() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, -1);
+        final byte[] bytes = serializer.serialize(routes);
+        bytes[1] = 1;
+
+        assertThat(serializer.deserialize(bytes)).isEqualTo(routes);
+    }
+
+    @Test
+    void deserialize_NewerFormatVersion_IsCacheMiss() {
+        final CompactCacheSerializer serializer = new CompactCacheSerializer(json, -1);
+        final byte[] bytes = serializer.serialize(routes);
+        bytes[1]++;
+
+        assertThat(serializer.deserialize(bytes)).isNull();
+    }
+
+    private static List<Route> routes() {
+        final Location taksim = new Location(1L, "Taksim Square", "Turkey", "Istanbul", "CCIST", 41.0370, 28.9850);
+        final Location saw = new Location(2L, "Sabiha Gökçen Airport", "Turkey", "Istanbul", "SAW", null, null);
+        final Location lhr = new Location(3L, "Heathrow Airport", "United Kingdom", "London", "LHR", 51.4700, -0.4543);
+        final Transportation flight = new Transportation(10L, saw, lhr, TransportationType.FLIGHT, List.of(1, 2, 3),
+                LocalTime.of(8, 30), LocalTime.of(11, 5), null);
+
+        final List<Route> routes = new ArrayList<>();
+        for (long id = 100; id < 150; id++) {
+            routes.add(new Route(List.of(
+                    new Transportation(id, taksim, saw, TransportationType.BUS, List.of(1, 2, 3), null, null, 60),
+                    flight)));
+        }
+        return routes;
+    }
+}
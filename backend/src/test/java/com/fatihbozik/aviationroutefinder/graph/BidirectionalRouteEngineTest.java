@@ -0,0 +1,59 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BidirectionalRouteEngineTest {
+
+    private static final RouteRules CONNECTIONS = RouteRules.parse("GROUND? FLIGHT{1,3} GROUND?");
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 5, 8})
+    void findRoutes_RandomSchedules_MatchDepthFirstEngine(long seed) {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(seed), 10, 70);
+        final RouteEngine depthFirst = new DepthFirstRouteEngine(CONNECTIONS);
+        final RouteEngine bidirectional = new BidirectionalRouteEngine(CONNECTIONS, 5, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            for (int destination = 0; destination < graph.locationCount(); destination++) {
+                assertThat(routes(bidirectional, graph, origin, destination))
+                        .as("routes %d -> %d", origin, destination)
+                        .containsExactlyElementsOf(routes(depthFirst, graph, origin, destination));
+            }
+        }
+    }
+
+    @Test
+    void findRoutes_GuardsExceeded_StopsEarly() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(13), 10, 90);
+        final RouteEngine depthFirst = new DepthFirstRouteEngine(CONNECTIONS);
+        final RouteEngine limited = new BidirectionalRouteEngine(CONNECTIONS, 2, 3, Integer.MAX_VALUE);
+
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            for (int destination = 0; destination < graph.locationCount(); destination++) {
+                final List<List<Integer>> found = routes(limited, graph, origin, destination);
+                assertThat(found).hasSizeLessThanOrEqualTo(3).allSatisfy(route -> assertThat(route).hasSizeLessThanOrEqualTo(2));
+                assertThat(routes(depthFirst, graph, origin, destination)).containsAll(found);
+            }
+        }
+    }
+
+    private static List<List<Integer>> routes(RouteEngine engine, TransitGraph graph, int origin, int destination) {
+        final List<List<Integer>> routes = new ArrayList<>();
+        engine.findRoutes(graph, origin, destination, 1, legs -> {
+            final List<Integer> route = new ArrayList<>();
+            for (int leg : legs) {
+                route.add(leg);
+            }
+            routes.add(route);
+        });
+        return routes;
+    }
+}
@@ -0,0 +1,139 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionScanEngineTest {
+    private static final int TAKSIM = 0;
+    private static final int IST = 1;
+    private static final int SAW = 2;
+    private static final int LHR = 3;
+    private static final int WEMBLEY = 4;
+    private static final int MONDAY = 1;
+
+    private final ConnectionScanEngine engine = new ConnectionScanEngine(RouteRules.DEFAULT, 30);
+    private final TransitGraph graph = timedGraph();
+
+    @Test
+    void findEarliestArrival_TwoRoutes_TakesTheOneArrivingFirst() {
+        final Journey journey = engine.findEarliestArrival(graph, TAKSIM, LHR, MONDAY, minutes(7, 0));
+
+        assertThat(ids(journey)).containsExactly(3L, 4L);
+        assertThat(journey.departures()).containsExactly(minutes(7, 0), minutes(9, 0));
+        assertThat(journey.arrival()).isEqualTo(minutes(12, 30));
+    }
+
+    @Test
+    void findEarliestArrival_TransferTooShort_TakesLaterConnection() {
+        final Journey journey = engine.findEarliestArrival(graph, TAKSIM, LHR, MONDAY, minutes(8, 30));
+
+        assertThat(ids(journey)).containsExactly(1L, 2L);
+        assertThat(journey.arrival()).isEqualTo(minutes(14, 0));
+    }
+
+    @Test
+    void findEarliestArrival_LastLegAlreadyLeft_ReturnsNull() {
+        assertThat(engine.findEarliestArrival(graph, IST, WEMBLEY, MONDAY, minutes(0, 0))).isNull();
+    }
+
+    @Test
+    void findEarliestArrival_OriginWithoutDepartures_ReturnsNull() {
+        assertThat(engine.findEarliestArrival(graph, WEMBLEY, LHR, MONDAY, minutes(0, 0))).isNull();
+    }
+
+    @Test
+    void findEarliestArrival_RepeatedSearches_DoNotSeeEachOther() {
+        final Journey late = engine.findEarliestArrival(graph, TAKSIM, LHR, MONDAY, minutes(8, 30));
+        final Journey early = engine.findEarliestArrival(graph, TAKSIM, LHR, MONDAY, minutes(7, 0));
+        final Journey again = engine.findEarliestArrival(graph, TAKSIM, LHR, MONDAY, minutes(8, 30));
+
+        assertThat(ids(early)).containsExactly(3L, 4L);
+        assertThat(ids(again)).isEqualTo(ids(late));
+        assertThat(again.arrival()).isEqualTo(late.arrival());
+    }
+
+    private List<Long> ids(Journey journey) {
+        assertThat(journey).isNotNull();
+        final List<Long> ids = new ArrayList<>();
+        for (int leg : journey.legs()) {
+            ids.add(graph.transportationId(leg));
+        }
+        return ids;
+    }
+
+    private static int minutes(int hour, int minute) {
+        return hour * 60 + minute;
+    }
+
+    /**
+     * Taksim reaches Heathrow by bus to Istanbul Airport and a flight at 10:00 or 15:00, or by bus to Sabiha Gokcen
+     * and a flight at 09:00. The only bus from Heathrow to Wembley leaves at 08:00, before any flight lands.
+     */
+    private static TransitGraph timedGraph() {
+        final List<LocationEntity> locations = new ArrayList<>();
+        for (String code : List.of("CCIST", "IST", "SAW", "LHR", "CCLON")) {
+            final LocationEntity location = new LocationEntity();
+            location.setId((long) locations.size() + 1);
+            location.setCode(code);
+            locations.add(location);
+        }
+
+        final LocationEntity taksim = locations.get(TAKSIM);
+        final LocationEntity ist = locations.get(IST);
+        final LocationEntity saw = locations.get(SAW);
+        final LocationEntity lhr = locations.get(LHR);
+        final List<TransportationEntity> transportations = List.of(
+                untimed(1, taksim, ist, 45),
+                timed(2, ist, lhr, TransportationType.FLIGHT, LocalTime.of(10, 0), LocalTime.of(14, 0)),
+                untimed(3, taksim, saw, 60),
+                timed(4, saw, lhr, TransportationType.FLIGHT, LocalTime.of(9, 0), LocalTime.of(12, 30)),
+                timed(5, lhr, locations.get(WEMBLEY), TransportationType.BUS, LocalTime.of(8, 0), LocalTime.of(8, 40)),
+                timed(6, ist, lhr, TransportationType.FLIGHT, LocalTime.of(15, 0), LocalTime.of(19, 0)));
+        return TransitGraph.build(locations, transportations,
+                entity -> new Location(entity.getId(), entity.getName(), entity.getCountry(), entity.getCity(), entity.getCode(),
+                        entity.getLatitude(), entity.getLongitude()), 1);
+    }
+
+    private static TransportationEntity untimed(long id,
+                                                LocationEntity origin,
+                                                LocationEntity destination,
+                                                int minutes) {
+        final TransportationEntity transportation = transportation(id, origin, destination, TransportationType.BUS);
+        transportation.setDurationMinutes(minutes);
+        return transportation;
+    }
+
+    private static TransportationEntity timed(long id,
+                                              LocationEntity origin,
+                                              LocationEntity destination,
+                                              TransportationType type,
+                                              LocalTime departure,
+                                              LocalTime arrival) {
+        final TransportationEntity transportation = transportation(id, origin, destination, type);
+        transportation.setDepartureTime(departure);
+        transportation.setArrivalTime(arrival);
+        return transportation;
+    }
+
+    private static TransportationEntity transportation(long id,
+                                                       LocationEntity origin,
+                                                       LocationEntity destination,
+                                                       TransportationType type) {
+        final TransportationEntity transportation = new TransportationEntity();
+        transportation.setId(id);
+        transportation.setOrigin(origin);
+        transportation.setDestination(destination);
+        transportation.setType(type);
+        transportation.setOperatingDays(List.of(1, 2, 3, 4, 5, 6, 7));
+        return transportation;
+    }
+}
@@ -0,0 +1,87 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightAnchoredRouteEngineTest {
+
+    private final RouteEngine depthFirst = new DepthFirstRouteEngine(RouteRules.DEFAULT);
+    private final RouteEngine flightAnchored = new FlightAnchoredRouteEngine(RouteRules.DEFAULT);
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 5, 8, 13, 21, 34})
+    void findRoutes_RandomSchedules_MatchDepthFirstEngine(long seed) {
+        final TransitGraph graph = randomGraph(new Random(seed), 12, 90);
+
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            for (int origin = 0; origin < graph.locationCount(); origin++) {
+                for (int destination = 0; destination < graph.locationCount(); destination++) {
+                    assertThat(routes(flightAnchored, graph, origin, destination, day))
+                            .as("routes %d -> %d on day %d", origin, destination, day)
+                            .containsExactlyElementsOf(routes(depthFirst, graph, origin, destination, day));
+                }
+            }
+        }
+    }
+
+    private static List<List<Integer>> routes(RouteEngine engine, TransitGraph graph, int origin, int destination, int day) {
+        final List<List<Integer>> routes = new ArrayList<>();
+        engine.findRoutes(graph, origin, destination, day, legs -> {
+            final List<Integer> route = new ArrayList<>();
+            for (int leg : legs) {
+                route.add(leg);
+            }
+            routes.add(route);
+        });
+        return routes;
+    }
+
+    /**
+     * Random multigraph with self loops, parallel transportations and a mix of flights and ground legs. Most locations
+     * lie somewhere in Europe; some have no coordinates.
+     */
+    static TransitGraph randomGraph(Random random, int locationCount, int transportationCount) {
+        final List<LocationEntity> locations = new ArrayList<>();
+        for (int i = 0; i < locationCount; i++) {
+            final LocationEntity location = new LocationEntity();
+            location.setId((long) i + 1);
+            location.setCode("L" + i);
+            if (random.nextInt(8) > 0) {
+                location.setLatitude(35 + random.nextDouble() * 30);
+                location.setLongitude(-10 + random.nextDouble() * 40);
+            }
+            locations.add(location);
+        }
+
+        final TransportationType[] types = TransportationType.values();
+        final List<TransportationEntity> transportations = new ArrayList<>();
+        for (int i = 0; i < transportationCount; i++) {
+            final TransportationEntity transportation = new TransportationEntity();
+            transportation.setId((long) i + 1);
+            transportation.setOrigin(locations.get(random.nextInt(locationCount)));
+            transportation.setDestination(locations.get(random.nextInt(locationCount)));
+            transportation.setType(types[random.nextInt(types.length)]);
+            final List<Integer> days = new ArrayList<>();
+            for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+                if (random.nextInt(3) > 0) {
+                    days.add(day);
+                }
+            }
+            transportation.setOperatingDays(days);
+            transportations.add(transportation);
+        }
+        return TransitGraph.build(locations, transportations,
+                entity -> new Location(entity.getId(), entity.getName(), entity.getCountry(), entity.getCity(), entity.getCode(),
+                        entity.getLatitude(), entity.getLongitude()), 1);
+    }
+}
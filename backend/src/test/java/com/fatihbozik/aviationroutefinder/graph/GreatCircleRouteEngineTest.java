@@ -0,0 +1,85 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GreatCircleRouteEngineTest {
+
+    private static final RouteRules CONNECTIONS = RouteRules.parse("GROUND{0,2} FLIGHT{1,2} GROUND{0,2}");
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void findRoutes_UnboundedDetour_FindsSameRoutesAsDepthFirstEngine(long seed) {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(seed), 10, 60);
+        final RouteEngine depthFirst = new DepthFirstRouteEngine(CONNECTIONS);
+        final GreatCircleRouteEngine greatCircle = new GreatCircleRouteEngine(CONNECTIONS, 1, 1e6);
+
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            for (int destination = 0; destination < graph.locationCount(); destination++) {
+                assertThat(routes(greatCircle, graph, origin, destination))
+                        .as("routes %d -> %d", origin, destination)
+                        .containsExactlyInAnyOrderElementsOf(routes(depthFirst, graph, origin, destination));
+            }
+        }
+        assertThat(greatCircle.statistics().detourLegs()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    void findRoutes_TightDetour_DropsOnlyLongGroundDetours(long seed) {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(seed), 10, 60);
+        final RouteEngine depthFirst = new DepthFirstRouteEngine(CONNECTIONS);
+        final GreatCircleRouteEngine greatCircle = new GreatCircleRouteEngine(CONNECTIONS, 1.2, 0);
+
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            for (int destination = 0; destination < graph.locationCount(); destination++) {
+                final List<List<Integer>> all = routes(depthFirst, graph, origin, destination);
+                final List<List<Integer>> kept = all.stream()
+                        .filter(route -> !hasDetour(graph, route, destination, 1.2))
+                        .toList();
+                assertThat(routes(greatCircle, graph, origin, destination))
+                        .as("routes %d -> %d", origin, destination)
+                        .containsExactlyInAnyOrderElementsOf(kept);
+            }
+        }
+        assertThat(greatCircle.statistics().detourLegs()).isPositive();
+    }
+
+    private static boolean hasDetour(TransitGraph graph, List<Integer> route, int destination, double ratio) {
+        for (int leg : route) {
+            final Location from = graph.location(graph.origin(leg));
+            final Location to = graph.location(graph.destination(leg));
+            final Location end = graph.location(destination);
+            if (graph.isFlight(leg) || !from.hasCoordinates() || !to.hasCoordinates() || !end.hasCoordinates()) {
+                continue;
+            }
+            if (distance(from, to) + distance(to, end) > ratio * distance(from, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double distance(Location from, Location to) {
+        return GreatCircle.distanceKm(from.latitude(), from.longitude(), to.latitude(), to.longitude());
+    }
+
+    private static List<List<Integer>> routes(RouteEngine engine, TransitGraph graph, int origin, int destination) {
+        final List<List<Integer>> routes = new ArrayList<>();
+        engine.findRoutes(graph, origin, destination, 1, legs -> {
+            final List<Integer> route = new ArrayList<>();
+            for (int leg : legs) {
+                route.add(leg);
+            }
+            routes.add(route);
+        });
+        return routes;
+    }
+}
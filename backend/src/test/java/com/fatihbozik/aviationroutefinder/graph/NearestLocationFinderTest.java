@@ -0,0 +1,71 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NearestLocationFinderTest {
+
+    private final NearestLocationFinder finder = new NearestLocationFinder();
+
+    @Test
+    void findNearest_RandomPoints_MatchesFullScan() {
+        final Random random = new Random(7);
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(random, 500, 100);
+
+        for (int i = 0; i < 200; i++) {
+            final double latitude = -90 + random.nextDouble() * 180;
+            final double longitude = -180 + random.nextDouble() * 360;
+            final int k = 1 + random.nextInt(10);
+
+            assertThat(distances(graph, latitude, longitude, finder.findNearest(graph, latitude, longitude, k)))
+                    .as("nearest %d to %f, %f", k, latitude, longitude)
+                    .containsExactly(fullScan(graph, latitude, longitude, k));
+        }
+    }
+
+    @Test
+    void findNearest_MoreThanIndexed_ReturnsEveryLocationWithCoordinates() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(3), 20, 10);
+
+        final int[] nearest = finder.findNearest(graph, 51.5, -0.1, 100);
+
+        assertThat(nearest).hasSize((int) IntStream.range(0, graph.locationCount())
+                .filter(location -> graph.location(location).hasCoordinates())
+                .count());
+    }
+
+    @Test
+    void findNearest_InvalidCoordinates_ThrowsIllegalArgumentException() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(3), 20, 10);
+
+        assertThatThrownBy(() -> finder.findNearest(graph, 91, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double[] distances(TransitGraph graph, double latitude, double longitude, int[] locations) {
+        return IntStream.of(locations)
+                .mapToDouble(location -> distance(graph.location(location), latitude, longitude))
+                .toArray();
+    }
+
+    private static double[] fullScan(TransitGraph graph, double latitude, double longitude, int k) {
+        return IntStream.range(0, graph.locationCount())
+                .mapToObj(graph::location)
+                .filter(Location::hasCoordinates)
+                .map(location -> distance(location, latitude, longitude))
+                .sorted(Comparator.naturalOrder())
+                .limit(k)
+                .mapToDouble(Double::doubleValue)
+                .toArray();
+    }
+
+    private static double distance(Location location, double latitude, double longitude) {
+        return GreatCircle.distanceKm(latitude, longitude, location.latitude(), location.longitude());
+    }
+}
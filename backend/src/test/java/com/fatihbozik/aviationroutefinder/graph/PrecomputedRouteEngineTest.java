@@ -0,0 +1,60 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrecomputedRouteEngineTest {
+
+    private final List<TransitGraph> liveSearches = new ArrayList<>();
+    private final RouteEngine liveEngine = (graph, origin, destination, day, routes) -> {
+        liveSearches.add(graph);
+        new FlightAnchoredRouteEngine(RouteRules.DEFAULT).findRoutes(graph, origin, destination, day, routes);
+    };
+    private final PrecomputedRouteEngine engine = new PrecomputedRouteEngine(liveEngine, new ReachabilityEngine(RouteRules.DEFAULT), 2);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void findRoutes_MatrixReady_MatchesLiveEngineWithoutSearching() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(7), 12, 90);
+        engine.rebuild(graph).join();
+
+        for (int day = 0; day <= OperatingDays.DAYS_PER_WEEK + 1; day++) {
+            for (int origin = 0; origin < graph.locationCount(); origin++) {
+                for (int destination = 0; destination < graph.locationCount(); destination++) {
+                    assertThat(routes(engine, graph, origin, destination, day))
+                            .as("routes %d -> %d on day %d", origin, destination, day)
+                            .containsExactlyElementsOf(routes(new FlightAnchoredRouteEngine(RouteRules.DEFAULT), graph, origin, destination, day));
+                }
+            }
+        }
+        assertThat(liveSearches).isEmpty();
+    }
+
+    @Test
+    void findRoutes_MatrixOfOtherVersion_FallsBackToLiveEngine() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(7), 12, 90);
+        engine.rebuild(graph).join();
+        final TransitGraph next = graph.withVersion(graph.version() + 1);
+
+        routes(engine, next, 0, 1, 1);
+
+        assertThat(liveSearches).containsExactly(next);
+    }
+
+    private static List<String> routes(RouteEngine engine, TransitGraph graph, int origin, int destination, int day) {
+        final List<String> routes = new ArrayList<>();
+        engine.findRoutes(graph, origin, destination, day, legs -> routes.add(Arrays.toString(legs)));
+        return routes;
+    }
+}
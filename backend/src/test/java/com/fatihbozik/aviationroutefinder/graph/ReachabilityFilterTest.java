@@ -0,0 +1,53 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReachabilityFilterTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"GROUND? FLIGHT GROUND?", "GROUND? FLIGHT GROUND? FLIGHT? GROUND?"})
+    void mayHaveRoute_RandomSchedules_NeverRulesOutExistingRoutes(String expression) {
+        final RouteRules rules = RouteRules.parse(expression);
+        final RouteEngine depthFirst = new DepthFirstRouteEngine(rules);
+        final ReachabilityFilter filter = new ReachabilityFilter(rules, 100);
+
+        int ruledOut = 0;
+        for (long seed = 1; seed <= 5; seed++) {
+            final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(seed), 12, 25);
+            filter.rebuild(graph).join();
+
+            for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+                for (int origin = 0; origin < graph.locationCount(); origin++) {
+                    for (int destination = 0; destination < graph.locationCount(); destination++) {
+                        final boolean[] found = new boolean[1];
+                        depthFirst.findRoutes(graph, origin, destination, day, legs -> found[0] = true);
+                        if (!filter.mayHaveRoute(graph, origin, destination, day)) {
+                            assertThat(found[0]).as("routes %d -> %d on day %d", origin, destination, day).isFalse();
+                            ruledOut++;
+                        }
+                    }
+                }
+            }
+        }
+        filter.shutdown();
+        assertThat(ruledOut).isPositive();
+    }
+
+    @Test
+    void mayHaveRoute_FilterOfOtherVersion_AllowsEveryPair() {
+        final ReachabilityFilter filter = new ReachabilityFilter(RouteRules.DEFAULT, 100);
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(3), 12, 0);
+        filter.rebuild(graph).join();
+        final TransitGraph next = graph.withVersion(graph.version() + 1);
+
+        assertThat(filter.mayHaveRoute(graph, 0, 1, 1)).isFalse();
+        assertThat(filter.mayHaveRoute(next, 0, 1, 1)).isTrue();
+        filter.shutdown();
+    }
+}
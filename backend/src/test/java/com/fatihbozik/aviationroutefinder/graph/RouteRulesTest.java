@@ -0,0 +1,76 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.fatihbozik.aviationroutefinder.persistence.TransportationType.BUS;
+import static com.fatihbozik.aviationroutefinder.persistence.TransportationType.FLIGHT;
+import static com.fatihbozik.aviationroutefinder.persistence.TransportationType.UBER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class RouteRulesTest {
+
+    @Test
+    void parse_DefaultRulesSpelledDifferently_EqualsDefault() {
+        RouteRules rules = RouteRules.parse(" BUS|SUBWAY|UBER{0,1}   FLIGHT{1}  GROUND? ");
+
+        assertThat(rules.isDefault()).isTrue();
+        assertThat(rules.maxLegs()).isEqualTo(3);
+    }
+
+    @Test
+    void next_DefaultRules_RejectsSecondFlightAndThirdGroundLeg() {
+        RouteRules rules = RouteRules.DEFAULT;
+
+        int afterFlight = rules.next(rules.start(), FLIGHT);
+        assertThat(rules.accepts(rules.start())).isFalse();
+        assertThat(rules.accepts(afterFlight)).isTrue();
+        assertThat(rules.next(afterFlight, FLIGHT)).isEqualTo(RouteRules.REJECT);
+        assertThat(rules.next(rules.next(afterFlight, BUS), UBER)).isEqualTo(RouteRules.REJECT);
+        assertThat(rules.next(rules.next(rules.start(), BUS), BUS)).isEqualTo(RouteRules.REJECT);
+    }
+
+    @Test
+    void parse_InvalidRules_ThrowsIllegalArgumentException() {
+        assertThatIllegalArgumentException().isThrownBy(() -> RouteRules.parse(""));
+        assertThatIllegalArgumentException().isThrownBy(() -> RouteRules.parse("TRAIN FLIGHT"));
+        assertThatIllegalArgumentException().isThrownBy(() -> RouteRules.parse("FLIGHT{2,1}"));
+        assertThatIllegalArgumentException().isThrownBy(() -> RouteRules.parse("FLIGHT{x}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 5, 8})
+    void findRoutes_ConnectionRules_AllEnginesAgree(long seed) {
+        RouteRules rules = RouteRules.parse("GROUND? FLIGHT GROUND? FLIGHT? GROUND?");
+        TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(seed), 10, 60);
+        RouteEngine depthFirst = new DepthFirstRouteEngine(rules);
+        RouteEngine flightAnchored = new FlightAnchoredRouteEngine(rules);
+        ReachabilityEngine reachability = new ReachabilityEngine(rules);
+
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            List<String> reachable = new ArrayList<>();
+            reachability.findRoutes(graph, origin, 1, (legs, destination) -> reachable.add(destination + ":" + List.of(legs.length)));
+            List<String> expected = new ArrayList<>();
+            for (int destination = 0; destination < graph.locationCount(); destination++) {
+                List<Integer> lengths = new ArrayList<>();
+                depthFirst.findRoutes(graph, origin, destination, 1, legs -> {
+                    assertThat(legs.length).isLessThanOrEqualTo(rules.maxLegs());
+                    lengths.add(legs.length);
+                });
+                List<Integer> anchored = new ArrayList<>();
+                flightAnchored.findRoutes(graph, origin, destination, 1, legs -> anchored.add(legs.length));
+                assertThat(anchored).isEqualTo(lengths);
+                for (int length : lengths) {
+                    expected.add(destination + ":" + List.of(length));
+                }
+            }
+            assertThat(reachable).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduleChangeRelayTest {
+
+    @Mock
+    private TransitGraphHolder transitGraphHolder;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> sequence;
+
+    private ScheduleChangeRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new ScheduleChangeRelay(transitGraphHolder, redisTemplate, Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        relay.shutdown();
+    }
+
+    @Test
+    void onMessage_ChangeOfOtherInstance_AppliesChange() {
+        relay.onMessage("other-instance\n3\nTRANSPORTATION\n7");
+
+        verify(transitGraphHolder).onScheduleChanged(ScheduleChangedEvent.transportation(7L));
+    }
+
+    @Test
+    void onMessage_Malformed_IsIgnored() {
+        relay.onMessage("other-instance\nnot-a-number\nLOCATION\n7");
+
+        verifyNoInteractions(transitGraphHolder);
+    }
+
+    @Test
+    void poll_AnnouncementArrivedBeforeNextPoll_DoesNotRebuild() {
+        when(redisTemplate.opsForValue()).thenReturn(sequence);
+        when(sequence.get(ScheduleChangeRelay.SEQUENCE_KEY)).thenReturn("2", "3", "3");
+
+        relay.poll();
+        relay.poll();
+        relay.onMessage("other-instance\n3\nLOCATION\n7");
+        relay.poll();
+
+        verify(transitGraphHolder, never()).refresh();
+    }
+
+    @Test
+    void poll_AnnouncementLost_RebuildsGraphAtNextPoll() {
+        when(redisTemplate.opsForValue()).thenReturn(sequence);
+        when(sequence.get(ScheduleChangeRelay.SEQUENCE_KEY)).thenReturn("2", "3", "3", "3");
+
+        relay.poll();
+        relay.poll();
+        relay.poll();
+        relay.poll();
+
+        verify(transitGraphHolder, times(1)).refresh();
+    }
+}
@@ -0,0 +1,117 @@
+package com.fatihbozik.aviationroutefinder.graph;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduleImpactTest {
+
+    private final RouteEngine depthFirst = new DepthFirstRouteEngine(RouteRules.DEFAULT);
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 5, 8, 13})
+    void of_TransportationMoved_CoversEverySearchWithChangedRoutes(long seed) {
+        final Random random = new Random(seed);
+        final TransitGraph previous = FlightAnchoredRouteEngineTest.randomGraph(random, 12, 30);
+        final int slot = random.nextInt(previous.transportationSlots());
+        final TransportationEntity moved = new TransportationEntity();
+        moved.setId(previous.transportationId(slot));
+        moved.setType(TransportationType.values()[random.nextInt(TransportationType.values().length)]);
+        moved.setOperatingDays(List.of(1, 3, 6));
+        final TransitGraph graph = previous.withoutTransportation(slot)
+                .withTransportation(random.nextInt(12), random.nextInt(12), moved)
+                .withVersion(previous.version() + 1);
+
+        final ScheduleImpact impact = ScheduleImpact.of(RouteRules.DEFAULT, previous, graph,
+                ScheduleChangedEvent.transportation(moved.getId()));
+
+        assertThat(impact.isEverything()).isFalse();
+        int unaffected = 0;
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            for (int origin = 0; origin < graph.locationCount(); origin++) {
+                for (int destination = 0; destination < graph.locationCount(); destination++) {
+                    final String originCode = graph.locationCode(origin);
+                    final String destinationCode = graph.locationCode(destination);
+                    if (!impact.affects(originCode, destinationCode, day)) {
+                        assertThat(routes(graph, origin, destination, day))
+                                .as("routes %s -> %s on day %d", originCode, destinationCode, day)
+                                .isEqualTo(routes(previous, origin, destination, day));
+                        unaffected++;
+                    }
+                }
+            }
+        }
+        assertThat(unaffected).isPositive();
+    }
+
+    @Test
+    void of_LocationRenamed_CoversFormerCodeAndRoutesThroughIt() {
+        final TransitGraph previous = FlightAnchoredRouteEngineTest.randomGraph(new Random(4), 12, 30);
+        final Location renamed = new Location(previous.locationId(3), null, null, null, "RENAMED", null, null);
+        final TransitGraph graph = previous.withLocation(3, renamed.id(), renamed).withVersion(previous.version() + 1);
+
+        final ScheduleImpact impact = ScheduleImpact.of(RouteRules.DEFAULT, previous, graph,
+                ScheduleChangedEvent.location(renamed.id()));
+
+        assertThat(impact.affects("L3", "ANYWHERE", 2)).isTrue();
+        assertThat(impact.affects("ANYWHERE", "L3", 5)).isTrue();
+        for (int day = 1; day <= OperatingDays.DAYS_PER_WEEK; day++) {
+            for (int origin = 0; origin < graph.locationCount(); origin++) {
+                for (int destination = 0; destination < graph.locationCount(); destination++) {
+                    final boolean passesThrough = routes(graph, origin, destination, day).stream()
+                            .flatMap(List::stream)
+                            .anyMatch(id -> touches(graph, id, 3));
+                    if (passesThrough) {
+                        assertThat(impact.affects(graph.locationCode(origin), graph.locationCode(destination), day))
+                                .as("routes %d -> %d on day %d", origin, destination, day)
+                                .isTrue();
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void of_GraphRebuilt_AffectsEverything() {
+        final TransitGraph graph = FlightAnchoredRouteEngineTest.randomGraph(new Random(1), 4, 4);
+
+        assertThat(ScheduleImpact.of(RouteRules.DEFAULT, graph, graph, null).isEverything()).isTrue();
+    }
+
+    /**
+     * @return the transportation ids of every route, so that slots reused between versions compare by identity
+     */
+    private List<List<Long>> routes(TransitGraph graph, int origin, int destination, int day) {
+        final List<List<Long>> routes = new ArrayList<>();
+        depthFirst.findRoutes(graph, origin, destination, day, legs -> {
+            final List<Long> route = new ArrayList<>();
+            for (int leg : legs) {
+                route.add(graph.transportationId(leg));
+            }
+            routes.add(route);
+        });
+        return routes;
+    }
+
+    private static boolean touches(TransitGraph graph, long transportationId, int location) {
+        final TransitGraph.Adjacency outgoing = graph.outgoing();
+        for (int origin = 0; origin < graph.locationCount(); origin++) {
+            for (int k = 0; k < outgoing.size(origin); k++) {
+                final int slot = outgoing.edge(origin, k);
+                if (graph.transportationId(slot) == transportationId) {
+                    return graph.origin(slot) == location || graph.destination(slot) == location;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.fatihbozik.aviationroutefinder.mapper;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import com.fatihbozik.aviationroutefinder.rest.model.CompactRoutesResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.LocationResponse;
+import com.fatihbozik.aviationroutefinder.rest.model.TransportationResponse;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRoutesMapperTest {
+    private static final Location TAKSIM = location(1, "CCIST");
+    private static final Location SABIHA = location(2, "SAW");
+    private static final Location ISTANBUL = location(3, "IST");
+    private static final Location HEATHROW = location(4, "LHR");
+
+    private final CompactRoutesMapper mapper = new CompactRoutesMapper(Mappers.getMapper(TransportationMapper.class),
+            Mappers.getMapper(LocationMapper.class));
+
+    @Test
+    void toResponse_LegSharedByTwoRoutes_ListedOnce() {
+        final Transportation flight = transportation(1, ISTANBUL, HEATHROW, TransportationType.FLIGHT);
+        final Transportation bus = transportation(2, TAKSIM, ISTANBUL, TransportationType.BUS);
+
+        final CompactRoutesResponse response = mapper.toResponse(List.of(
+                new Route(List.of(flight)),
+                new Route(List.of(bus, flight))));
+
+        assertThat(response.getTransportations()).extracting(TransportationResponse::getId).containsExactly(1L, 2L);
+        assertThat(response.getRoutes()).containsExactly(List.of(0), List.of(1, 0));
+    }
+
+    @Test
+    void toResponse_EveryEndOfEveryLeg_ListedOnceInLocations() {
+        final CompactRoutesResponse response = mapper.toResponse(List.of(
+                new Route(List.of(transportation(1, TAKSIM, ISTANBUL, TransportationType.BUS),
+                        transportation(2, ISTANBUL, HEATHROW, TransportationType.FLIGHT))),
+                new Route(List.of(transportation(3, TAKSIM, SABIHA, TransportationType.UBER),
+                        transportation(4, SABIHA, HEATHROW, TransportationType.FLIGHT)))));
+
+        final List<Long> locationIds = response.getLocations().stream().map(LocationResponse::getId).toList();
+        assertThat(locationIds).doesNotHaveDuplicates();
+        for (TransportationResponse transportation : response.getTransportations()) {
+            assertThat(locationIds).contains(transportation.getOriginId(), transportation.getDestinationId());
+        }
+    }
+
+    @Test
+    void toResponse_NoRoutes_ReturnsEmptyLists() {
+        final CompactRoutesResponse response = mapper.toResponse(List.of());
+
+        assertThat(response.getLocations()).isEmpty();
+        assertThat(response.getTransportations()).isEmpty();
+        assertThat(response.getRoutes()).isEmpty();
+    }
+
+    private static Location location(long id, String code) {
+        return new Location(id, code, "Country", "City", code, null, null);
+    }
+
+    private static Transportation transportation(long id,
+                                                 Location origin,
+                                                 Location destination,
+                                                 TransportationType type) {
+        return new Transportation(id, origin, destination, type, List.of(1, 2, 3, 4, 5, 6, 7), null, null, null);
+    }
+}
@@ -0,0 +1,122 @@
+package com.fatihbozik.aviationroutefinder.rest.controller;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.RouteSort;
+import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.mapper.CompactRoutesMapper;
+import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
+import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import com.fatihbozik.aviationroutefinder.service.RouteService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares payload size and encode time of the route response shapes in JSON and CBOR, on a synthetic hub schedule
+ * where a few hundred popular flights and a few thousand feeder legs are shared by thousands of routes. Run with
+ * {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class RouteEncodingBenchmark {
+    private static final int LOCATIONS = 2_000;
+    private static final int TRANSPORTATIONS = 20_000;
+    private static final int POPULAR_FLIGHTS = 300;
+    private static final int FEEDERS = 2_000;
+    private static final int ROUTES = 10_000;
+    private static final int ITERATIONS = 20;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+    @Test
+    void encodeRoutes() throws Exception {
+        final RouteService routeService = mock(RouteService.class);
+        when(routeService.calculateRoutes(anyString(), anyString(), anyInt())).thenReturn(syntheticRoutes(new Random(42)));
+        final TransportationMapper transportationMapper = Mappers.getMapper(TransportationMapper.class);
+        final LocationMapper locationMapper = Mappers.getMapper(LocationMapper.class);
+        final RouteController controller = new RouteController(routeService, transportationMapper, locationMapper,
+                new CompactRoutesMapper(transportationMapper, locationMapper), json);
+        final LocalDate date = LocalDate.of(2025, 4, 14);
+
+        final Object full = controller.findRoutes("IST", "LHR", date, null, 0, RouteSort.DISCOVERY, null);
+        final Object compact = controller.findCompactRoutes("IST", "LHR", date, null, 0, RouteSort.DISCOVERY, null);
+
+        final long fullJson = measure("full JSON", () -> encode(json, full));
+        final long fullCbor = measure("full CBOR", () -> encode(cbor, full));
+        final long compactJson = measure("compact JSON", () -> encode(json, compact));
+        final long compactCbor = measure("compact CBOR", () -> encode(cbor, compact));
+
+        assertThat(fullCbor).isLessThan(fullJson);
+        assertThat(compactJson).isLessThan(fullJson);
+        assertThat(compactCbor).isLessThan(compactJson);
+    }
+
+    /**
+     * @return the payload size
+     */
+    private static long measure(String name, Supplier<byte[]> encoder) {
+        long best = Long.MAX_VALUE;
+        int size = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            size = encoder.get().length;
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-13s %,11d bytes %8.2f ms%n", name, size, best / 1e6);
+        return size;
+    }
+
+    private static byte[] encode(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static List<Route> syntheticRoutes(Random random) {
+        final List<Location> locations = new ArrayList<>(LOCATIONS);
+        for (int i = 0; i < LOCATIONS; i++) {
+            locations.add(new Location((long) i + 1, "Location " + i, "Country " + i % 50, "City " + i % 400,
+                    "L" + i, 35 + random.nextDouble() * 30, -10 + random.nextDouble() * 40));
+        }
+
+        final TransportationType[] types = TransportationType.values();
+        final List<Transportation> transportations = new ArrayList<>(TRANSPORTATIONS);
+        for (int i = 0; i < TRANSPORTATIONS; i++) {
+            final LocalTime departure = LocalTime.of(random.nextInt(24), random.nextInt(60));
+            transportations.add(new Transportation((long) i + 1,
+                    locations.get(random.nextInt(LOCATIONS)), locations.get(random.nextInt(LOCATIONS)),
+                    types[random.nextInt(types.length)], List.of(1, 2, 3, 4, 5),
+                    departure, departure.plusMinutes(95), 95));
+        }
+
+        final List<Route> routes = new ArrayList<>(ROUTES);
+        for (int i = 0; i < ROUTES; i++) {
+            // Every route takes one popular flight, with a feeder leg to and from the hubs
+            routes.add(new Route(List.of(
+                    transportations.get(POPULAR_FLIGHTS + random.nextInt(FEEDERS)),
+                    transportations.get(random.nextInt(POPULAR_FLIGHTS)),
+                    transportations.get(POPULAR_FLIGHTS + random.nextInt(FEEDERS)))));
+        }
+        return routes;
+    }
+}
@@ -0,0 +1,16 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.graph.DepthFirstRouteEngine;
+import com.fatihbozik.aviationroutefinder.graph.RouteEngine;
+import com.fatihbozik.aviationroutefinder.graph.RouteRules;
+
+/**
+ * Runs the {@link RouteServiceImplTest} scenarios against the generic depth-first engine.
+ */
+class DepthFirstRouteServiceImplTest extends RouteServiceImplTest {
+
+    @Override
+    protected RouteEngine routeEngine() {
+        return new DepthFirstRouteEngine(RouteRules.DEFAULT);
+    }
+}
@@ -1,6 +1,9 @@
 package com.fatihbozik.aviationroutefinder.service;
 
 import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraph;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraphHolder;
 import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
 import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
 import com.fatihbozik.aviationroutefinder.repository.LocationRepository;
@@ -11,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Collections;
 import java.util.List;
@@ -31,6 +35,12 @@ class LocationServiceImplTest {
     @Mock
     private LocationMapper locationMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransitGraphHolder transitGraphHolder;
+
     @InjectMocks
     private LocationServiceImpl locationService;
 
@@ -39,7 +49,7 @@ class LocationServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        mockLocation = new Location(1L, "Istanbul Airport", "Turkey", "Istanbul", "IST");
+        mockLocation = new Location(1L, "Istanbul Airport", "Turkey", "Istanbul", "IST", 41.2753, 28.7519);
 
         mockLocationEntity = new LocationEntity();
         mockLocationEntity.setId(1L);
@@ -74,6 +84,7 @@ class LocationServiceImplTest {
         assertThat(result).isEqualTo(mockLocation);
         verify(locationMapper).toEntity(mockLocation);
         verify(locationRepository).save(mockLocationEntity);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
         verify(locationMapper).toDomain(mockLocationEntity);
     }
 
@@ -90,6 +101,7 @@ class LocationServiceImplTest {
         verify(locationRepository).findById(1L);
         verify(locationMapper).updateEntity(mockLocation, mockLocationEntity);
         verify(locationRepository).save(mockLocationEntity);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
         verify(locationMapper).toDomain(mockLocationEntity);
     }
 
@@ -136,6 +148,7 @@ class LocationServiceImplTest {
 
         verify(locationRepository).existsById(1L);
         verify(locationRepository).deleteById(1L);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
     }
 
     @Test
@@ -148,5 +161,28 @@ class LocationServiceImplTest {
 
         verify(locationRepository).existsById(999L);
         verify(locationRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void findByCodePrefix_shouldMatchIgnoringCaseWithoutQueryingRepository() {
+        when(transitGraphHolder.get()).thenReturn(TransitGraph.build(
+                List.of(location(1L, "SAW"), location(2L, "IST"), location(3L, "ISE"), location(4L, "LHR")),
+                List.of(), entity -> new Location(entity.getId(), null, null, null, entity.getCode(), null, null), 1));
+
+        List<Location> result = locationService.findByCodePrefix("is", 10);
+        List<Location> limited = locationService.findByCodePrefix("I", 1);
+
+        assertThat(result).extracting(Location::code).containsExactly("ISE", "IST");
+        assertThat(limited).extracting(Location::code).containsExactly("ISE");
+        assertThat(locationService.findByCodePrefix("x", 10)).isEmpty();
+        verifyNoInteractions(locationRepository);
+    }
+
+    private static LocationEntity location(Long id, String code) {
+        LocationEntity entity = new LocationEntity();
+        entity.setId(id);
+        entity.setCode(code);
+        return entity;
     }
 }
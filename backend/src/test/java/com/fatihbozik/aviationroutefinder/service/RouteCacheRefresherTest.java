@@ -0,0 +1,76 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteCacheRefresherTest {
+
+    private final RouteCacheRefresher refresher = new RouteCacheRefresher(2);
+
+    @AfterEach
+    void shutdown() {
+        refresher.shutdown();
+    }
+
+    @Test
+    void refresh_KeyBeingRefreshed_RefreshesOnce() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final BooleanSupplier refresh = () -> {
+            runs.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+
+        refresher.refresh("route_0_IST_LHR_1", refresh);
+        refresher.refresh("route_0_IST_LHR_1", refresh);
+        refresher.refresh("route_0_IST_LHR_1", refresh);
+        release.countDown();
+        awaitUntil(() -> refresher.statistics().refreshes() == 1);
+
+        assertEquals(1, runs.get());
+        assertEquals(3, refresher.statistics().staleServes());
+    }
+
+    @Test
+    void refresh_Failing_CountsFailureAndAllowsNextRefresh() throws InterruptedException {
+        refresher.refresh("route_0_IST_LHR_1", () -> {
+            throw new IllegalStateException("search failed");
+        });
+        awaitUntil(() -> refresher.statistics().failedRefreshes() == 1);
+
+        refresher.refresh("route_0_IST_LHR_1", () -> true);
+        awaitUntil(() -> refresher.statistics().refreshes() == 1);
+
+        assertTrue(refresher.statistics().maxRefreshMillis() >= refresher.statistics().averageRefreshMillis());
+    }
+
+    @Test
+    void refresh_NotCached_CountsDiscardedRefresh() throws InterruptedException {
+        refresher.refresh("route_0_IST_LHR_1", () -> false);
+        awaitUntil(() -> refresher.statistics().discardedRefreshes() == 1);
+
+        assertEquals(0, refresher.statistics().refreshes());
+        assertEquals(0, refresher.statistics().failedRefreshes());
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.domain.Location;
+import com.fatihbozik.aviationroutefinder.graph.RouteRules;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleImpact;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraph;
+import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
+import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSetCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RouteCacheTest {
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private RedisCache redisCache;
+
+    @Mock
+    private RedisConnectionFactory connectionFactory;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisStringCommands stringCommands;
+
+    @Mock
+    private RedisSetCommands setCommands;
+
+    private RouteCache routeCache;
+
+    @BeforeEach
+    void setUp() {
+        routeCache = new RouteCache(cacheManager, connectionFactory, Duration.ofMinutes(1), Duration.ofMinutes(20));
+        when(cacheManager.getCache(RouteCache.NAME)).thenReturn(redisCache);
+        when(redisCache.getName()).thenReturn(RouteCache.NAME);
+        when(redisCache.getCacheConfiguration()).thenReturn(RedisCacheConfiguration.defaultCacheConfig());
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+    }
+
+    @Test
+    void get_AfterInvalidateAll_ReadsNextGeneration() {
+        when(stringCommands.incr(bytes("routes::generation"))).thenReturn(4L);
+
+        routeCache.invalidateAll();
+        routeCache.get(RouteCache.key("IST", "LHR", 1));
+
+        verify(redisCache).get("route_4_IST_LHR_1");
+    }
+
+    @Test
+    void evict_ChangedFlight_EvictsIndexedSearchesOfItsArea() {
+        givenGeneration(3);
+        when(connection.setCommands()).thenReturn(setCommands);
+        when(setCommands.sUnion(any(byte[][].class))).thenReturn(Set.of(
+                bytes("route_3_IST_LHR_1"), bytes("route_3_CCIST_LHR_1"), bytes("route_3_IST_LHR_2")));
+
+        routeCache.evict(flightImpact(List.of(1)));
+
+        final ArgumentCaptor<byte[][]> indexKeys = ArgumentCaptor.forClass(byte[][].class);
+        verify(setCommands).sUnion(indexKeys.capture());
+        assertEquals(Set.of("routes::index_3_from_IST", "routes::index_3_from_CCIST"),
+                Set.copyOf(Arrays.stream(indexKeys.getValue()).map(RouteCacheTest::string).toList()));
+        verify(redisCache).evict("route_3_IST_LHR_1");
+        verify(redisCache).evict("route_3_CCIST_LHR_1");
+        verify(redisCache, never()).evict("route_3_IST_LHR_2");
+    }
+
+    @Test
+    void evict_FlightOperatingOnNoDay_QueriesNoIndex() {
+        givenGeneration(3);
+
+        routeCache.evict(flightImpact(List.of()));
+
+        verify(connection, never()).setCommands();
+        verify(redisCache, never()).evict(any());
+        verify(stringCommands, never()).incr(any());
+    }
+
+    private void givenGeneration(long generation) {
+        when(stringCommands.get(bytes("routes::generation"))).thenReturn(bytes(Long.toString(generation)));
+    }
+
+    /**
+     * Impact of changing the flight of a schedule where a bus from Taksim connects to it at Istanbul Airport.
+     */
+    private static ScheduleImpact flightImpact(List<Integer> flightDays) {
+        final LocationEntity taksim = location(1, "CCIST");
+        final LocationEntity istanbul = location(2, "IST");
+        final LocationEntity heathrow = location(3, "LHR");
+        final List<TransportationEntity> transportations = new ArrayList<>();
+        transportations.add(transportation(1, taksim, istanbul, TransportationType.BUS, List.of(1, 2, 3, 4, 5, 6, 7)));
+        transportations.add(transportation(2, istanbul, heathrow, TransportationType.FLIGHT, flightDays));
+
+        final TransitGraph graph = TransitGraph.build(List.of(taksim, istanbul, heathrow), transportations,
+                entity -> new Location(entity.getId(), entity.getName(), entity.getCountry(), entity.getCity(), entity.getCode(),
+                        entity.getLatitude(), entity.getLongitude()), 1);
+        return ScheduleImpact.of(RouteRules.DEFAULT, graph, graph.withVersion(2), ScheduleChangedEvent.transportation(2L));
+    }
+
+    private static LocationEntity location(long id, String code) {
+        final LocationEntity location = new LocationEntity();
+        location.setId(id);
+        location.setCode(code);
+        return location;
+    }
+
+    private static TransportationEntity transportation(long id,
+                                                       LocationEntity origin,
+                                                       LocationEntity destination,
+                                                       TransportationType type,
+                                                       List<Integer> operatingDays) {
+        final TransportationEntity transportation = new TransportationEntity();
+        transportation.setId(id);
+        transportation.setOrigin(origin);
+        transportation.setDestination(destination);
+        transportation.setType(type);
+        transportation.setOperatingDays(operatingDays);
+        return transportation;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
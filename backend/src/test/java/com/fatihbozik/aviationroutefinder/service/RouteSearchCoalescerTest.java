@@ -0,0 +1,129 @@
+package com.fatihbozik.aviationroutefinder.service;
+
+import com.fatihbozik.aviationroutefinder.domain.Route;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RouteSearchCoalescerTest {
+
+    private final RouteCache routeCache = new RouteCache(new ConcurrentMapCacheManager(RouteCache.NAME), null,
+            Duration.ofSeconds(1), Duration.ofMinutes(20));
+
+    private final List<Route> routes = List.of(new Route(List.of()));
+
+    @Test
+    void coalesce_ConcurrentIdenticalSearches_ComputeOnce() throws Exception {
+        final RouteSearchCoalescer coalescer = new RouteSearchCoalescer(routeCache, Duration.ofSeconds(10), false,
+                Duration.ofSeconds(10));
+        final AtomicInteger searches = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Callable<List<Route>> search = () -> coalescer.coalesce("route_IST_LHR_1", 1, () -> {
+                searches.incrementAndGet();
+                await(release);
+                return routes;
+            });
+            final List<Future<List<Route>>> results = new ArrayList<>();
+            results.add(executor.submit(search));
+            while (coalescer.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(search));
+            }
+            // Let the other callers join the running search before it completes
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<List<Route>> result : results) {
+                assertSame(routes, result.get());
+            }
+            assertEquals(1, searches.get());
+            assertEquals(0, coalescer.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void coalesce_RunningSearchTooSlow_SearchesIndependently() throws Exception {
+        final RouteSearchCoalescer coalescer = new RouteSearchCoalescer(routeCache, Duration.ofMillis(50), false,
+                Duration.ofSeconds(10));
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<List<Route>> slow = executor.submit(() -> coalescer.coalesce("route_IST_LHR_1", 1, () -> {
+                await(release);
+                return List.of();
+            }));
+            while (coalescer.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertSame(routes, coalescer.coalesce("route_IST_LHR_1", 1, () -> routes));
+            release.countDown();
+            assertEquals(List.of(), slow.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void coalesce_SearchFails_LetsNextCallerSearchAgain() {
+        final RouteSearchCoalescer coalescer = new RouteSearchCoalescer(routeCache, Duration.ofSeconds(1), false,
+                Duration.ofSeconds(10));
+
+        assertThrows(IllegalStateException.class, () -> coalescer.coalesce("route_IST_LHR_1", 1, () -> {
+            throw new IllegalStateException("search failed");
+        }));
+        assertSame(routes, coalescer.coalesce("route_IST_LHR_1", 1, () -> routes));
+    }
+
+    @Test
+    void coalesce_DistributedWithoutRedis_SearchesUnderLocalLock() {
+        final RouteSearchCoalescer coalescer = new RouteSearchCoalescer(routeCache, Duration.ofSeconds(1), true,
+                Duration.ofSeconds(10));
+
+        assertSame(routes, coalescer.coalesce("route_IST_LHR_1", 1, () -> routes));
+    }
+
+    @Test
+    void coalesce_LockReleasedAfterCaching_ReturnsCachedRoutes() {
+        final RouteCache lockingCache = mock(RouteCache.class);
+        when(lockingCache.tryLock("route_IST_LHR_1", Duration.ofSeconds(10))).thenReturn(null, "token");
+        when(lockingCache.get("route_IST_LHR_1")).thenReturn(null, new RouteCache.Hit(routes, false));
+        final RouteSearchCoalescer coalescer = new RouteSearchCoalescer(lockingCache, Duration.ofSeconds(1), true,
+                Duration.ofSeconds(10));
+
+        assertSame(routes, coalescer.coalesce("route_IST_LHR_1", 1, () -> {
+            throw new IllegalStateException("searched although the routes were cached");
+        }));
+        verify(lockingCache).unlock("route_IST_LHR_1", "token");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,27 +1,57 @@
 package com.fatihbozik.aviationroutefinder.service;
 
+import com.fatihbozik.aviationroutefinder.domain.ReachableDestination;
+import com.fatihbozik.aviationroutefinder.domain.NearbyRoutes;
 import com.fatihbozik.aviationroutefinder.domain.Route;
+import com.fatihbozik.aviationroutefinder.domain.RoutePage;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearch;
+import com.fatihbozik.aviationroutefinder.domain.RouteSearchResult;
+import com.fatihbozik.aviationroutefinder.domain.RouteSort;
+import com.fatihbozik.aviationroutefinder.domain.ScheduledRoute;
 import com.fatihbozik.aviationroutefinder.domain.Transportation;
-import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
+import com.fatihbozik.aviationroutefinder.graph.ConnectionScanEngine;
+import com.fatihbozik.aviationroutefinder.graph.FlightAnchoredRouteEngine;
+import com.fatihbozik.aviationroutefinder.graph.NearestLocationFinder;
+import com.fatihbozik.aviationroutefinder.graph.RankedRouteSearch;
+import com.fatihbozik.aviationroutefinder.graph.ReachabilityEngine;
+import com.fatihbozik.aviationroutefinder.graph.ReachabilityFilter;
+import com.fatihbozik.aviationroutefinder.graph.RouteEngine;
+import com.fatihbozik.aviationroutefinder.graph.RouteRules;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
+import com.fatihbozik.aviationroutefinder.graph.TransitGraphHolder;
+import com.fatihbozik.aviationroutefinder.mapper.LocationMapper;
 import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
 import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
 import com.fatihbozik.aviationroutefinder.persistence.TransportationType;
 import com.fatihbozik.aviationroutefinder.repository.LocationRepository;
 import com.fatihbozik.aviationroutefinder.repository.TransportationRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mapstruct.factory.Mappers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,13 +63,38 @@ public class RouteServiceImplTest {
     @Mock
     private TransportationRepository transportationRepository;
 
-    @Mock
-    private TransportationMapper transportationMapper;
+    private final LocationMapper locationMapper = Mappers.getMapper(LocationMapper.class);
+
+    private Runnable afterRoutesPut;
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(RouteCache.NAME,
+            RouteServiceImpl.REACHABILITY_CACHE) {
+        @Override
+        protected Cache createConcurrentMapCache(String name) {
+            return new ConcurrentMapCache(name) {
+                @Override
+                public void put(Object key, Object value) {
+                    super.put(key, value);
+                    final Runnable hook = afterRoutesPut;
+                    afterRoutesPut = null;
+                    if (hook != null) {
+                        hook.run();
+                    }
+                }
+            };
+        }
+    };
+
+    private final ExecutorService routeSearchExecutor = Executors.newFixedThreadPool(2);
+
+    private final RouteCache routeCache = new RouteCache(cacheManager, null, Duration.ofSeconds(1), Duration.ofMinutes(20));
+
+    private TransitGraphHolder transitGraphHolder;
 
-    @InjectMocks
     private RouteServiceImpl routeService;
 
     private LocationEntity istanbulAirport;
+    private LocationEntity sawAirport;
     private LocationEntity heathrowAirport;
     private LocationEntity taksimSquare;
     private LocationEntity wembleyStadium;
@@ -50,12 +105,6 @@ public class RouteServiceImplTest {
     private TransportationEntity taksimToSaw;
     private TransportationEntity sawToHeathrow;
 
-    private Transportation taksimToIstanbulDomain;
-    private Transportation istanbulToHeathrowDomain;
-    private Transportation heathrowToWembleyDomain;
-    private Transportation taksimToSawDomain;
-    private Transportation sawToHeathrowDomain;
-
     @BeforeEach
     void setUp() {
         // Set up location entities
@@ -65,13 +114,17 @@ public class RouteServiceImplTest {
         istanbulAirport.setCode("IST");
         istanbulAirport.setCity("Istanbul");
         istanbulAirport.setCountry("Turkey");
+        istanbulAirport.setLatitude(41.2753);
+        istanbulAirport.setLongitude(28.7519);
 
-        LocationEntity sawAirport = new LocationEntity();
+        sawAirport = new LocationEntity();
         sawAirport.setId(2L);
         sawAirport.setName("Sabiha Gökçen Airport");
         sawAirport.setCode("SAW");
         sawAirport.setCity("Istanbul");
         sawAirport.setCountry("Turkey");
+        sawAirport.setLatitude(40.8986);
+        sawAirport.setLongitude(29.3092);
 
         heathrowAirport = new LocationEntity();
         heathrowAirport.setId(3L);
@@ -79,6 +132,8 @@ public class RouteServiceImplTest {
         heathrowAirport.setCode("LHR");
         heathrowAirport.setCity("London");
         heathrowAirport.setCountry("UK");
+        heathrowAirport.setLatitude(51.4700);
+        heathrowAirport.setLongitude(-0.4543);
 
         taksimSquare = new LocationEntity();
         taksimSquare.setId(4L);
@@ -86,6 +141,8 @@ public class RouteServiceImplTest {
         taksimSquare.setCode("CCIST");
         taksimSquare.setCity("Istanbul");
         taksimSquare.setCountry("Turkey");
+        taksimSquare.setLatitude(41.0370);
+        taksimSquare.setLongitude(28.9850);
 
         wembleyStadium = new LocationEntity();
         wembleyStadium.setId(5L);
@@ -93,6 +150,8 @@ public class RouteServiceImplTest {
         wembleyStadium.setCode("CCLON");
         wembleyStadium.setCity("London");
         wembleyStadium.setCountry("UK");
+        wembleyStadium.setLatitude(51.5560);
+        wembleyStadium.setLongitude(-0.2796);
 
         // Set up transportation entities
         taksimToIstanbul = new TransportationEntity();
@@ -130,93 +189,322 @@ public class RouteServiceImplTest {
         sawToHeathrow.setType(TransportationType.FLIGHT);
         sawToHeathrow.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5));
 
-        // Set up domain objects for mapper
-        taksimToIstanbulDomain = mock(Transportation.class);
-        istanbulToHeathrowDomain = mock(Transportation.class);
-        heathrowToWembleyDomain = mock(Transportation.class);
-        taksimToSawDomain = mock(Transportation.class);
-        sawToHeathrowDomain = mock(Transportation.class);
+        transitGraphHolder = new TransitGraphHolder(locationRepository, transportationRepository, locationMapper,
+                event -> {
+                });
+        routeService = new RouteServiceImpl(transitGraphHolder, routeEngine(), new ReachabilityEngine(RouteRules.DEFAULT),
+                new RankedRouteSearch(RouteRules.DEFAULT), new ConnectionScanEngine(RouteRules.DEFAULT, 30),
+                new NearestLocationFinder(), new ReachabilityFilter(RouteRules.DEFAULT, 0),
+                routeCache, cacheManager, new RouteSearchCoalescer(routeCache, Duration.ofSeconds(5), false, Duration.ofSeconds(10)),
+                new RouteCacheRefresher(1), routeSearchExecutor);
+    }
+
+    protected RouteEngine routeEngine() {
+        return new FlightAnchoredRouteEngine(RouteRules.DEFAULT);
+    }
+
+    private void givenSchedule(TransportationEntity... transportations) {
+        when(locationRepository.findAll())
+                .thenReturn(List.of(istanbulAirport, sawAirport, heathrowAirport, taksimSquare, wembleyStadium));
+        when(transportationRepository.findAll()).thenReturn(Arrays.asList(transportations));
+        transitGraphHolder.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        routeSearchExecutor.shutdownNow();
+    }
+
+    private static List<Long> stepIds(Route route) {
+        return route.steps().stream()
+                .map(Transportation::id)
+                .toList();
     }
 
     @Test
     void calculateRoutes_LocationNotFound_ThrowsEntityNotFoundException() {
-        when(locationRepository.findByCode("UNKNOWN")).thenReturn(Optional.empty());
+        givenSchedule();
 
         assertThrows(EntityNotFoundException.class, () -> {
             routeService.calculateRoutes("UNKNOWN", "LHR", 1);
         });
 
-        verify(locationRepository).findByCode("UNKNOWN");
+        verify(locationRepository, never()).findByCode(anyString());
     }
 
     @Test
     void calculateRoutes_DestinationNotFound_ThrowsEntityNotFoundException() {
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("UNKNOWN")).thenReturn(Optional.empty());
+        givenSchedule();
 
         assertThrows(EntityNotFoundException.class, () -> {
             routeService.calculateRoutes("CCIST", "UNKNOWN", 1);
         });
 
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("UNKNOWN");
+        verify(locationRepository, never()).findByCode(anyString());
+    }
+
+    @Test
+    void calculateRoutes_CodesInOtherCase_ResolvesLocationsIgnoringCase() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<Route> routes = routeService.calculateRoutes("ccist", "Lhr", 1);
+
+        assertEquals(routeService.calculateRoutes("CCIST", "LHR", 1), routes);
+        assertEquals(2, routes.size());
+        verify(locationRepository, never()).findByCode(anyString());
     }
 
     @Test
     void calculateRoutes_NoValidRoutes_ReturnsEmptyList() {
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("CCLON")).thenReturn(Optional.of(wembleyStadium));
-        when(transportationRepository.findAll()).thenReturn(new ArrayList<>());
+        givenSchedule();
 
         List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1);
 
         assertTrue(routes.isEmpty());
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("CCLON");
-        verify(transportationRepository).findAll();
     }
 
     @Test
     void calculateRoutes_ValidSingleRoute_ReturnsOneRoute() {
-        when(locationRepository.findByCode("IST")).thenReturn(Optional.of(istanbulAirport));
-        when(locationRepository.findByCode("LHR")).thenReturn(Optional.of(heathrowAirport));
-        when(transportationRepository.findAll()).thenReturn(List.of(istanbulToHeathrow));
-
-        when(transportationMapper.toDomains(List.of(istanbulToHeathrow)))
-                .thenReturn(List.of(istanbulToHeathrowDomain));
+        givenSchedule(istanbulToHeathrow);
 
         List<Route> routes = routeService.calculateRoutes("IST", "LHR", 1);
 
         assertEquals(1, routes.size());
-        verify(locationRepository).findByCode("IST");
-        verify(locationRepository).findByCode("LHR");
-        verify(transportationRepository).findAll();
-        verify(transportationMapper).toDomains(anyList());
+        assertEquals(List.of(2L), stepIds(routes.getFirst()));
     }
 
     @Test
     void calculateRoutes_ValidMultiRoutes_ReturnsMultipleRoutes() {
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("CCLON")).thenReturn(Optional.of(wembleyStadium));
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
 
-        when(transportationRepository.findAll()).thenReturn(Arrays.asList(
-                taksimToIstanbul, istanbulToHeathrow, heathrowToWembley,
-                taksimToSaw, sawToHeathrow
-        ));
+        List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1);
 
-        when(transportationMapper.toDomains(Arrays.asList(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley)))
-                .thenReturn(Arrays.asList(taksimToIstanbulDomain, istanbulToHeathrowDomain, heathrowToWembleyDomain));
+        assertEquals(2, routes.size());
+        assertEquals(List.of(1L, 2L, 3L), stepIds(routes.get(0)));
+        assertEquals(List.of(4L, 5L, 3L), stepIds(routes.get(1)));
+    }
 
-        when(transportationMapper.toDomains(Arrays.asList(taksimToSaw, sawToHeathrow, heathrowToWembley)))
-                .thenReturn(Arrays.asList(taksimToSawDomain, sawToHeathrowDomain, heathrowToWembleyDomain));
+    @Test
+    void calculateRoutes_Weekend_UsesOnlyTransportationsOperatingThatDay() {
+        TransportationEntity weekendFlight = new TransportationEntity();
+        weekendFlight.setId(9L);
+        weekendFlight.setOrigin(istanbulAirport);
+        weekendFlight.setDestination(heathrowAirport);
+        weekendFlight.setType(TransportationType.FLIGHT);
+        weekendFlight.setOperatingDays(Arrays.asList(6, 7));
 
-        List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1);
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, weekendFlight, heathrowToWembley, taksimToSaw, sawToHeathrow);
 
-        assertEquals(2, routes.size());
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("CCLON");
-        verify(transportationRepository).findAll();
-        verify(transportationMapper, atLeast(1)).toDomains(anyList());
+        List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 6);
+
+        assertEquals(1, routes.size());
+        assertEquals(List.of(1L, 9L, 3L), stepIds(routes.getFirst()));
+    }
+
+    @Test
+    void calculateRoutes_RepeatedSearches_DoNotQueryRepositories() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        routeService.calculateRoutes("CCIST", "CCLON", 1);
+        routeService.calculateRoutes("IST", "LHR", 2);
+
+        verify(transportationRepository, times(1)).findAll();
+        verify(locationRepository, times(1)).findAll();
+        verifyNoMoreInteractions(locationRepository, transportationRepository);
+    }
+
+    @Test
+    void calculateRoutes_AfterTransportationChanges_AppliesDeltasWithoutRebuilding() {
+        givenSchedule(istanbulToHeathrow);
+        final long version = transitGraphHolder.version();
+
+        when(transportationRepository.findById(5L)).thenReturn(Optional.of(sawToHeathrow));
+        transitGraphHolder.onScheduleChanged(ScheduleChangedEvent.transportation(5L));
+        when(transportationRepository.findById(2L)).thenReturn(Optional.empty());
+        transitGraphHolder.onScheduleChanged(ScheduleChangedEvent.transportation(2L));
+
+        assertEquals(List.of(5L), stepIds(routeService.calculateRoutes("SAW", "LHR", 1).getFirst()));
+        assertTrue(routeService.calculateRoutes("IST", "LHR", 1).isEmpty());
+        assertEquals(version + 2, transitGraphHolder.version());
+        verify(transportationRepository, times(1)).findAll();
+        verify(locationRepository, times(1)).findAll();
+    }
+
+    @Test
+    void calculateRoutesBatch_MixedSearches_ReturnsResultsInRequestOrder() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<RouteSearchResult> results = routeService.calculateRoutes(List.of(
+                new RouteSearch("IST", "LHR", 1),
+                new RouteSearch("UNKNOWN", "LHR", 1),
+                new RouteSearch("CCIST", "CCLON", 1),
+                new RouteSearch("IST", "LHR", 1),
+                new RouteSearch("IST", "UNKNOWN", 1)));
+
+        assertEquals(5, results.size());
+        assertEquals(List.of(2L), stepIds(results.get(0).routes().getFirst()));
+        assertEquals("Origin Location not found: UNKNOWN", results.get(1).error());
+        assertEquals(List.of(1L, 2L, 3L), stepIds(results.get(2).routes().get(0)));
+        assertEquals(List.of(4L, 5L, 3L), stepIds(results.get(2).routes().get(1)));
+        assertEquals(results.get(0), results.get(3));
+        assertNotNull(results.get(4).error());
+        assertTrue(results.get(4).routes().isEmpty());
+    }
+
+    @Test
+    void calculateRoutesBatch_CachedSearch_ReusesCachedRoutes() {
+        givenSchedule(istanbulToHeathrow);
+        List<Route> cached = List.of(new Route(List.of()));
+        routeCache.put(RouteCache.key("IST", "LHR", 1), cached);
+
+        List<RouteSearchResult> results = routeService.calculateRoutes(List.of(
+                new RouteSearch("IST", "LHR", 1),
+                new RouteSearch("IST", "LHR", 2)));
+
+        assertSame(cached, results.get(0).routes());
+        assertEquals(List.of(2L), stepIds(results.get(1).routes().getFirst()));
+        assertNotNull(routeCache.get(RouteCache.key("IST", "LHR", 2)));
+    }
+
+    @Test
+    void calculateRoutes_GraphReplacedWhileCaching_EvictsRoutes() {
+        givenSchedule(istanbulToHeathrow);
+        afterRoutesPut = transitGraphHolder::refresh;
+
+        assertEquals(List.of(2L), stepIds(routeService.calculateRoutes("IST", "LHR", 1).getFirst()));
+        assertNull(routeCache.get(RouteCache.key("IST", "LHR", 1)));
+    }
+
+    @Test
+    void calculateRoutes_AfterCacheInvalidated_RecomputesRoutes() {
+        givenSchedule(istanbulToHeathrow);
+        List<Route> cached = List.of(new Route(List.of()));
+        routeCache.put(RouteCache.key("IST", "LHR", 1), cached);
+        assertSame(cached, routeService.calculateRoutes("IST", "LHR", 1));
+
+        routeCache.invalidateAll();
+
+        assertEquals(List.of(2L), stepIds(routeService.calculateRoutes("IST", "LHR", 1).getFirst()));
+    }
+
+    @Test
+    void calculateRoutesForDays_RepeatedWeekdays_SearchesEachWeekdayOnce() {
+        givenSchedule(istanbulToHeathrow);
+
+        Map<Integer, List<Route>> routesByDay = routeService.calculateRoutes("IST", "LHR", List.of(1, 6, 1, 6, 1));
+
+        assertEquals(Set.of(1, 6), routesByDay.keySet());
+        assertEquals(List.of(2L), stepIds(routesByDay.get(1).getFirst()));
+        assertTrue(routesByDay.get(6).isEmpty());
+    }
+
+    @Test
+    void calculateRoutesForDays_LocationNotFound_ThrowsEntityNotFoundException() {
+        givenSchedule(istanbulToHeathrow);
+
+        assertThrows(EntityNotFoundException.class, () -> {
+            routeService.calculateRoutes("IST", "UNKNOWN", List.of(1, 2));
+        });
+    }
+
+    @Test
+    void calculateRoutesFromNearest_PointAtOrigin_SearchesFromNearestLocations() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<NearbyRoutes> fromTaksim = routeService.calculateRoutesFromNearest(41.0370, 28.9850, "LHR", 1, 1);
+        List<NearbyRoutes> fromHeathrow = routeService.calculateRoutesFromNearest(51.4700, -0.4543, "LHR", 1, 1);
+
+        assertEquals(1, fromTaksim.size());
+        assertEquals("CCIST", fromTaksim.getFirst().origin().code());
+        assertEquals(0.0, fromTaksim.getFirst().distanceKm(), 1e-6);
+        assertEquals(routeService.calculateRoutes("CCIST", "LHR", 1), fromTaksim.getFirst().routes());
+        assertEquals("CCLON", fromHeathrow.getFirst().origin().code());
+        assertTrue(fromHeathrow.getFirst().routes().isEmpty());
+    }
+
+    @Test
+    void calculateReachableDestinations_ValidMultiRoutes_ReturnsEveryDestinationOnce() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<ReachableDestination> destinations = routeService.calculateReachableDestinations("CCIST", 1);
+
+        assertEquals(List.of("CCLON", "LHR"), destinations.stream().map(reachable -> reachable.destination().code()).toList());
+        assertEquals(routeService.calculateRoutes("CCIST", "CCLON", 1), destinations.get(0).routes());
+        assertEquals(routeService.calculateRoutes("CCIST", "LHR", 1), destinations.get(1).routes());
+    }
+
+    @Test
+    void calculateReachableDestinations_OriginInOtherCase_SharesCacheEntry() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<ReachableDestination> destinations = routeService.calculateReachableDestinations("ccist", 1);
+
+        assertSame(destinations, routeService.calculateReachableDestinations("CCIST", 1));
+        assertNotNull(cacheManager.getCache(RouteServiceImpl.REACHABILITY_CACHE).get("reach_CCIST_1"));
+    }
+
+    @Test
+    void calculateReachableDestinations_OriginNotFound_ThrowsEntityNotFoundException() {
+        givenSchedule();
+
+        assertThrows(EntityNotFoundException.class, () -> {
+            routeService.calculateReachableDestinations("UNKNOWN", 1);
+        });
+    }
+
+    @Test
+    void streamRoutes_ValidMultiRoutes_StreamsSameRoutesAsCalculateRoutes() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<Route> streamed = new ArrayList<>();
+        routeService.streamRoutes("CCIST", "CCLON", 1).forEach(streamed::add);
+
+        assertEquals(routeService.calculateRoutes("CCIST", "CCLON", 1), streamed);
+        assertEquals(List.of(4L, 5L, 3L), stepIds(routeService.streamRoutes("CCIST", "CCLON", 1).skip(1).findFirst().orElseThrow()));
+    }
+
+    @Test
+    void streamRoutes_DestinationNotFound_ThrowsBeforeStreaming() {
+        givenSchedule(istanbulToHeathrow);
+
+        assertThrows(EntityNotFoundException.class, () -> {
+            routeService.streamRoutes("IST", "UNKNOWN", 1);
+        });
+    }
+
+    @Test
+    void calculateRoutesPage_FewestLegs_ReturnsConsecutivePages() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<Route> first = routeService.calculateRoutes("CCIST", "CCLON", 1, new RoutePage(RouteSort.FEWEST_LEGS, null, 0, 1));
+        List<Route> rest = routeService.calculateRoutes("CCIST", "CCLON", 1, new RoutePage(RouteSort.FEWEST_LEGS, null, 1, 5));
+
+        assertEquals(List.of(List.of(1L, 2L, 3L)), first.stream().map(RouteServiceImplTest::stepIds).toList());
+        assertEquals(List.of(List.of(4L, 5L, 3L)), rest.stream().map(RouteServiceImplTest::stepIds).toList());
+    }
+
+    @Test
+    void calculateRoutesPage_Discovery_ReturnsSlicesOfDiscoveryOrder() {
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+        List<Route> all = routeService.calculateRoutes("CCIST", "CCLON", 1);
+
+        List<Route> first = routeService.calculateRoutes("CCIST", "CCLON", 1, new RoutePage(RouteSort.DISCOVERY, null, 0, 1));
+        List<Route> rest = routeService.calculateRoutes("CCIST", "CCLON", 1, new RoutePage(RouteSort.DISCOVERY, null, 1, 5));
+
+        assertEquals(all.subList(0, 1), first);
+        assertEquals(all.subList(1, 2), rest);
+    }
+
+    @Test
+    void calculateRoutesPage_PreferredType_RanksRoutesWithMostPreferredLegsFirst() {
+        taksimToSaw.setType(TransportationType.UBER);
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+
+        List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1,
+                new RoutePage(RouteSort.PREFERRED_TYPE, TransportationType.UBER, 0, 10));
+
+        assertEquals(List.of(List.of(4L, 5L, 3L), List.of(1L, 2L, 3L)),
+                routes.stream().map(RouteServiceImplTest::stepIds).toList());
     }
 
     @Test
@@ -242,22 +530,12 @@ public class RouteServiceImplTest {
         parisToWembley.setType(TransportationType.BUS);
         parisToWembley.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5));
 
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("CDG")).thenReturn(Optional.of(parisAirport));
-
-        when(transportationRepository.findAll()).thenReturn(Arrays.asList(
-                taksimToIstanbul, istanbulToHeathrow, heathrowToParis, parisToWembley
-        ));
-
-        when(transportationMapper.toDomains(Arrays.asList(taksimToIstanbul, istanbulToHeathrow, heathrowToParis)))
-                .thenReturn(Arrays.asList(taksimToIstanbulDomain, istanbulToHeathrowDomain, mock(Transportation.class)));
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToParis, parisToWembley);
 
         List<Route> routes = routeService.calculateRoutes("CCIST", "CDG", 1);
 
         assertEquals(1, routes.size());
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("CDG");
-        verify(transportationRepository).findAll();
+        assertEquals(List.of(1L, 2L, 6L), stepIds(routes.getFirst()));
     }
 
     @Test
@@ -269,16 +547,11 @@ public class RouteServiceImplTest {
         taksimToWembley.setType(TransportationType.BUS);
         taksimToWembley.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5));
 
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("CCLON")).thenReturn(Optional.of(wembleyStadium));
-        when(transportationRepository.findAll()).thenReturn(List.of(taksimToWembley));
+        givenSchedule(taksimToWembley);
 
         List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1);
 
         assertTrue(routes.isEmpty());
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("CCLON");
-        verify(transportationRepository).findAll();
     }
 
     @Test
@@ -304,21 +577,11 @@ public class RouteServiceImplTest {
         lhrToWembley.setType(TransportationType.FLIGHT); // İkinci uçuş burada, bu da testi başarısız kılmalı
         lhrToWembley.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5, 6, 7));
 
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("CCLON")).thenReturn(Optional.of(wembleyStadium));
-
-        when(transportationRepository.findAll()).thenReturn(Arrays.asList(
-                taksimToIst, istToLhr, lhrToWembley
-        ));
+        givenSchedule(taksimToIst, istToLhr, lhrToWembley);
 
         List<Route> routes = routeService.calculateRoutes("CCIST", "CCLON", 1);
 
         assertTrue(routes.isEmpty(), "Birden fazla uçuş içeren rotalar boş bir liste döndürmelidir");
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("CCLON");
-        verify(transportationRepository).findAll();
-
-        verifyNoInteractions(transportationMapper);
     }
 
     @Test
@@ -344,19 +607,11 @@ public class RouteServiceImplTest {
         antalyaToIstanbul.setType(TransportationType.BUS);
         antalyaToIstanbul.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5));
 
-        when(locationRepository.findByCode("CCIST")).thenReturn(Optional.of(taksimSquare));
-        when(locationRepository.findByCode("LHR")).thenReturn(Optional.of(heathrowAirport));
-
-        when(transportationRepository.findAll()).thenReturn(Arrays.asList(
-                taksimToAntalya, antalyaToIstanbul, istanbulToHeathrow
-        ));
+        givenSchedule(taksimToAntalya, antalyaToIstanbul, istanbulToHeathrow);
 
         List<Route> routes = routeService.calculateRoutes("CCIST", "LHR", 1);
 
         assertTrue(routes.isEmpty());
-        verify(locationRepository).findByCode("CCIST");
-        verify(locationRepository).findByCode("LHR");
-        verify(transportationRepository).findAll();
     }
 
     @Test
@@ -382,26 +637,15 @@ public class RouteServiceImplTest {
         manchesterToWembley.setType(TransportationType.BUS);
         manchesterToWembley.setOperatingDays(Arrays.asList(1, 2, 3, 4, 5));
 
-        when(locationRepository.findByCode("IST")).thenReturn(Optional.of(istanbulAirport));
-        when(locationRepository.findByCode("CCLON")).thenReturn(Optional.of(wembleyStadium));
-
-        when(transportationRepository.findAll()).thenReturn(Arrays.asList(
-                istanbulToHeathrow, heathrowToManchester, manchesterToWembley
-        ));
+        givenSchedule(istanbulToHeathrow, heathrowToManchester, manchesterToWembley);
 
         List<Route> routes = routeService.calculateRoutes("IST", "CCLON", 1);
 
         assertTrue(routes.isEmpty());
-        verify(locationRepository).findByCode("IST");
-        verify(locationRepository).findByCode("CCLON");
-        verify(transportationRepository).findAll();
     }
 
     @Test
     void calculateRoutes_InvalidOperatingDay_ReturnsEmptyList() {
-        when(locationRepository.findByCode("IST")).thenReturn(Optional.of(istanbulAirport));
-        when(locationRepository.findByCode("LHR")).thenReturn(Optional.of(heathrowAirport));
-
         TransportationEntity flightWithSpecificDays = new TransportationEntity();
         flightWithSpecificDays.setId(14L);
         flightWithSpecificDays.setOrigin(istanbulAirport);
@@ -409,13 +653,61 @@ public class RouteServiceImplTest {
         flightWithSpecificDays.setType(TransportationType.FLIGHT);
         flightWithSpecificDays.setOperatingDays(Arrays.asList(1, 3, 5)); // Mon, Wed, Fri
 
-        when(transportationRepository.findAll()).thenReturn(List.of(flightWithSpecificDays));
+        givenSchedule(flightWithSpecificDays);
 
         List<Route> routes = routeService.calculateRoutes("IST", "LHR", 2);
 
         assertTrue(routes.isEmpty());
-        verify(locationRepository).findByCode("IST");
-        verify(locationRepository).findByCode("LHR");
-        verify(transportationRepository).findAll();
+    }
+
+    private void givenTimedSchedule() {
+        taksimToIstanbul.setDurationMinutes(45);
+        istanbulToHeathrow.setDepartureTime(LocalTime.of(10, 0));
+        istanbulToHeathrow.setArrivalTime(LocalTime.of(14, 0));
+        taksimToSaw.setDurationMinutes(60);
+        sawToHeathrow.setDepartureTime(LocalTime.of(9, 0));
+        sawToHeathrow.setArrivalTime(LocalTime.of(12, 30));
+        heathrowToWembley.setDepartureTime(LocalTime.of(8, 0));
+        heathrowToWembley.setArrivalTime(LocalTime.of(8, 40));
+        givenSchedule(taksimToIstanbul, istanbulToHeathrow, heathrowToWembley, taksimToSaw, sawToHeathrow);
+    }
+
+    @Test
+    void calculateScheduledRoutes_TimedSchedule_ReturnsFeasibleRoutesByArrival() {
+        givenTimedSchedule();
+        LocalDate monday = LocalDate.of(2025, 4, 14);
+
+        List<ScheduledRoute> routes = routeService.calculateScheduledRoutes("CCIST", "LHR", monday, LocalTime.of(7, 0));
+
+        assertEquals(2, routes.size());
+        assertEquals(List.of(4L, 5L), routes.get(0).steps().stream().map(step -> step.transportation().id()).toList());
+        assertEquals(LocalDateTime.of(2025, 4, 14, 7, 0), routes.get(0).departure());
+        assertEquals(LocalDateTime.of(2025, 4, 14, 12, 30), routes.get(0).arrival());
+        assertEquals(LocalDateTime.of(2025, 4, 14, 14, 0), routes.get(1).arrival());
+    }
+
+    @Test
+    void calculateScheduledRoutes_ConnectionAlreadyLeft_ReturnsEmptyList() {
+        givenTimedSchedule();
+
+        List<ScheduledRoute> routes = routeService.calculateScheduledRoutes("IST", "CCLON",
+                LocalDate.of(2025, 4, 14), LocalTime.of(0, 0));
+
+        assertTrue(routes.isEmpty());
+    }
+
+    @Test
+    void calculateEarliestArrival_TransferTooShort_TakesLaterFlight() {
+        givenTimedSchedule();
+        LocalDate monday = LocalDate.of(2025, 4, 14);
+
+        ScheduledRoute early = routeService.calculateEarliestArrival("CCIST", "LHR", monday, LocalTime.of(7, 0));
+        ScheduledRoute late = routeService.calculateEarliestArrival("CCIST", "LHR", monday, LocalTime.of(8, 30));
+
+        assertEquals(LocalDateTime.of(2025, 4, 14, 12, 30), early.arrival());
+        assertEquals(List.of(1L, 2L), late.steps().stream().map(step -> step.transportation().id()).toList());
+        assertEquals(LocalDateTime.of(2025, 4, 14, 9, 15), late.steps().getFirst().arrival());
+        assertThrows(EntityNotFoundException.class,
+                () -> routeService.calculateEarliestArrival("IST", "CCLON", monday, LocalTime.of(0, 0)));
     }
 }
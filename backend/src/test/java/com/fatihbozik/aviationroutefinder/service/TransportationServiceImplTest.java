@@ -2,6 +2,7 @@ package com.fatihbozik.aviationroutefinder.service;
 
 import com.fatihbozik.aviationroutefinder.domain.Location;
 import com.fatihbozik.aviationroutefinder.domain.Transportation;
+import com.fatihbozik.aviationroutefinder.graph.ScheduleChangedEvent;
 import com.fatihbozik.aviationroutefinder.mapper.TransportationMapper;
 import com.fatihbozik.aviationroutefinder.persistence.LocationEntity;
 import com.fatihbozik.aviationroutefinder.persistence.TransportationEntity;
@@ -15,7 +16,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -38,6 +41,9 @@ class TransportationServiceImplTest {
     @Mock
     private TransportationRepository transportationRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TransportationServiceImpl transportationService;
 
@@ -48,8 +54,8 @@ class TransportationServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        Location mockOrigin = new Location(1L, "Istanbul Airport", "Turkey", "Istanbul", "IST");
-        Location mockDestination = new Location(2L, "Ankara Airport", "Turkey", "Ankara", "ESB");
+        Location mockOrigin = new Location(1L, "Istanbul Airport", "Turkey", "Istanbul", "IST", 41.2753, 28.7519);
+        Location mockDestination = new Location(2L, "Ankara Airport", "Turkey", "Ankara", "ESB", 40.1281, 32.9951);
 
         mockOriginEntity = new LocationEntity();
         mockOriginEntity.setId(1L);
@@ -70,7 +76,10 @@ class TransportationServiceImplTest {
                 mockOrigin,
                 mockDestination,
                 TransportationType.FLIGHT,
-                List.of(1, 3, 5)
+                List.of(1, 3, 5),
+                LocalTime.of(8, 0),
+                LocalTime.of(9, 15),
+                null
         );
 
         mockTransportationEntity = new TransportationEntity();
@@ -79,6 +88,8 @@ class TransportationServiceImplTest {
         mockTransportationEntity.setDestination(mockDestinationEntity);
         mockTransportationEntity.setType(TransportationType.FLIGHT);
         mockTransportationEntity.setOperatingDays(List.of(1, 3, 5));
+        mockTransportationEntity.setDepartureTime(LocalTime.of(8, 0));
+        mockTransportationEntity.setArrivalTime(LocalTime.of(9, 15));
     }
 
     @Test
@@ -107,6 +118,7 @@ class TransportationServiceImplTest {
         assertThat(result).isEqualTo(mockTransportation);
         verify(transportationMapper).toEntity(mockTransportation);
         verify(transportationRepository).save(mockTransportationEntity);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
         verify(transportationMapper).toDomain(mockTransportationEntity);
     }
 
@@ -148,6 +160,7 @@ class TransportationServiceImplTest {
         verify(locationRepository).findById(1L);
         verify(locationRepository).findById(2L);
         verify(transportationRepository).save(mockTransportationEntity);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
         verify(transportationMapper).toDomain(mockTransportationEntity);
     }
 
@@ -201,6 +214,7 @@ class TransportationServiceImplTest {
 
         verify(transportationRepository).existsById(1L);
         verify(transportationRepository).deleteById(1L);
+        verify(eventPublisher).publishEvent(any(ScheduleChangedEvent.class));
     }
 
     @Test
@@ -213,5 +227,6 @@ class TransportationServiceImplTest {
 
         verify(transportationRepository).existsById(999L);
         verify(transportationRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(eventPublisher);
     }
 }